@@ -6,12 +6,14 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @SpringBootApplication // Точка входа Spring Boot-приложения + авто-конфигурация
+@EnableScheduling // Периодические задачи (очистка кэшей и т.п.)
 public class CinemaSpringApplication {
 
     public static void main(String[] args) {
@@ -44,6 +46,16 @@ public class CinemaSpringApplication {
             user.getRoles().clear();
             user.addRole("USER");
             userRepository.save(user); // Сохраняем / обновляем обычного пользователя
+
+            // STAFF — контролёр на входе (сканер билетов)
+            AppUser staff = userRepository.findByUsername("staff")
+                    .orElseGet(AppUser::new);
+            staff.setUsername("staff");
+            staff.setPassword(passwordEncoder.encode("staff")); // staff/staff
+            staff.setFullName("Entrance Staff");
+            staff.getRoles().clear();
+            staff.addRole("STAFF");
+            userRepository.save(staff);
         };
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.example.cinema.config;
+
+import com.example.cinema.service.HallLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Переносит сеансы со старого текстового столбца screenings.hall на таблицу halls.
+ * Для каждого встреченного названия заводится зал со схемой, которая раньше была зашита
+ * в код (10 рядов по 18 мест), после чего старый столбец удаляется.
+ * Выполняется до Hibernate: обновление схемы не может добавить обязательный hall_id в таблицу с данными.
+ * <p>
+ * SQL написан для H2 — единственной базы приложения: имена в information_schema хранятся в верхнем регистре,
+ * а add column if not exists и alter column set not null — синтаксис H2. На другой базе миграцию нужно переписать.
+ */
+@Component
+public class HallMigrationInitializer implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(HallMigrationInitializer.class);
+
+    private static final int LEGACY_ROWS = 10;
+    private static final int LEGACY_SEATS_PER_ROW = 18;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HallMigrationInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Integer legacyColumns = jdbcTemplate.queryForObject(
+                "select count(*) from information_schema.columns where table_name = 'SCREENINGS' and column_name = 'HALL'",
+                Integer.class);
+        if (legacyColumns == null || legacyColumns == 0) {
+            return; // Новая база или уже перенесено — таблицы создаст Hibernate
+        }
+
+        // Таблица и столбец — как их создал бы Hibernate, только hall_id пока без not null
+        jdbcTemplate.execute("create table if not exists halls (id bigint generated by default as identity, "
+                + "layout varchar(4000) not null, name varchar(255) not null, primary key (id))");
+        jdbcTemplate.execute("alter table screenings add column if not exists hall_id bigint");
+
+        String layout = HallLayout.uniform(LEGACY_ROWS, LEGACY_SEATS_PER_ROW);
+        List<String> names = jdbcTemplate.queryForList(
+                "select distinct trim(hall) from screenings where hall_id is null and hall is not null", String.class);
+        for (String name : names) {
+            jdbcTemplate.update("insert into halls (name, layout) select ?, ? where not exists "
+                    + "(select 1 from halls where name = ?)", name, layout, name);
+        }
+
+        int moved = jdbcTemplate.update("update screenings s set hall_id = "
+                + "(select h.id from halls h where h.name = trim(s.hall)) where s.hall_id is null");
+        jdbcTemplate.execute("alter table screenings alter column hall_id set not null");
+        jdbcTemplate.execute("alter table screenings drop column hall");
+        logger.info("Moved {} screenings to {} halls", moved, names.size());
+    }
+
+    // EntityManagerFactory создаётся только после миграции
+    @Configuration(proxyBeanMethods = false)
+    static class JpaOrdering {
+
+        @Bean
+        static EntityManagerFactoryDependsOnPostProcessor hallMigrationBeforeJpa() {
+            return new EntityManagerFactoryDependsOnPostProcessor(HallMigrationInitializer.class) {
+            };
+        }
+    }
+}
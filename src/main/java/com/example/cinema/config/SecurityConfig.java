@@ -4,6 +4,7 @@ import com.example.cinema.domain.AppUser;
 import com.example.cinema.repo.AppUserRepository;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -22,6 +23,9 @@ public class SecurityConfig {
         http
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/admin/**").hasRole("ADMIN") // Доступ только для администраторов
+                        .requestMatchers("/api/checkin/**").hasAnyRole("STAFF", "ADMIN") // Сканеры на входе
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN") // Метрики — только администраторам
                         .requestMatchers("/**").permitAll() // Все остальные страницы доступны всем
                 )
                 .formLogin(form -> form
@@ -29,6 +33,7 @@ public class SecurityConfig {
                         .loginProcessingUrl("/process-login") // URL для обработки формы входа
                         .defaultSuccessUrl("/movies", true) // После успешного входа — редирект на главную страницу
                         .permitAll())
+                .httpBasic(Customizer.withDefaults()) // Сканеры на входе авторизуются без формы входа
                 .logout(logout -> logout
                         .logoutUrl("/logout")
                         .logoutSuccessUrl("/movies") // После выхода — редирект на главную страницу
@@ -0,0 +1,41 @@
+package com.example.cinema.config;
+
+import com.example.cinema.domain.Ticket;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Выравнивает последовательность tickets_seq по уже существующим билетам.
+ * Раньше id билетов выдавал IDENTITY-столбец; новая последовательность начинается с 1
+ * и без сдвига выдала бы id, которые уже заняты.
+ */
+@Component
+public class TicketSequenceInitializer implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketSequenceInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // EntityManagerFactory в конструкторе — чтобы схема (и последовательность) уже была создана Hibernate
+    public TicketSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from tickets", Long.class);
+        Long nextValue = jdbcTemplate.queryForObject(
+                "select base_value from information_schema.sequences where sequence_name = 'TICKETS_SEQ'", Long.class);
+
+        // Пул id, который Hibernate получит следующим, должен целиком лежать выше max(id)
+        if (maxId != null && nextValue != null && nextValue - Ticket.ID_ALLOCATION_SIZE <= maxId) {
+            long restartWith = maxId + Ticket.ID_ALLOCATION_SIZE + 1;
+            jdbcTemplate.execute("alter sequence tickets_seq restart with " + restartWith);
+            logger.info("Sequence tickets_seq restarted with {} (max ticket id {})", restartWith, maxId);
+        }
+    }
+}
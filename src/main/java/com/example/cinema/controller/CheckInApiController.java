@@ -0,0 +1,43 @@
+package com.example.cinema.controller;
+
+import com.example.cinema.dto.CheckInScan;
+import com.example.cinema.dto.CheckInSync;
+import com.example.cinema.service.CheckInResult;
+import com.example.cinema.service.CheckInService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * API для сканеров на входе (роль STAFF или ADMIN, HTTP Basic).
+ * Ответ на скан — всегда 200 со статусом в теле: сканеру нужен результат проверки, а не ошибка HTTP.
+ */
+@RestController
+@RequestMapping("/api/checkin")
+public class CheckInApiController {
+
+    private static final int MAX_SYNC_SCANS = 1000; // Больше за раз устройство не присылает
+
+    private final CheckInService checkInService;
+
+    public CheckInApiController(CheckInService checkInService) {
+        this.checkInService = checkInService;
+    }
+
+    @PostMapping("/scan")
+    public CheckInResult scan(@RequestBody CheckInScan scan) {
+        return checkInService.scan(scan.token(), scan.screeningId(), scan.scannedAt());
+    }
+
+    @PostMapping("/sync")
+    public ResponseEntity<List<CheckInResult>> sync(@RequestBody CheckInSync sync) {
+        if (sync.scans() == null || sync.scans().size() > MAX_SYNC_SCANS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(checkInService.sync(sync.scans(), sync.screeningId()));
+    }
+}
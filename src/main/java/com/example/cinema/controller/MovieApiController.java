@@ -0,0 +1,30 @@
+package com.example.cinema.controller;
+
+import com.example.cinema.dto.MovieSuggestion;
+import com.example.cinema.service.MovieAutocomplete;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/movies") // JSON для строки поиска
+public class MovieApiController {
+
+    private final MovieAutocomplete autocomplete; // Снимок каталога в памяти для подсказок
+
+    public MovieApiController(MovieAutocomplete autocomplete) {
+        this.autocomplete = autocomplete;
+    }
+
+    // Подсказки по мере ввода: без базы, ответ в несколько сотен байт. Минута в кэше — подсказки не обязаны быть свежее
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<MovieSuggestion>> autocomplete(@RequestParam("q") String query,
+                                                              @RequestParam(value = "limit", defaultValue = "8") int limit) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic())
+                .body(autocomplete.suggest(query, Math.clamp(limit, 1, MovieAutocomplete.MAX_LIMIT)));
+    }
+}
@@ -2,19 +2,28 @@ package com.example.cinema.controller;
 
 import com.example.cinema.domain.AppUser;
 import com.example.cinema.domain.Movie;
-import com.example.cinema.domain.Screening;
+import com.example.cinema.dto.KeysetPage;
 import com.example.cinema.dto.RegistrationForm;
 import com.example.cinema.repo.AppUserRepository;
-import com.example.cinema.repo.MovieRepository;
-import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.service.CatalogCache;
+import com.example.cinema.service.CatalogEtags;
+import com.example.cinema.service.CatalogCache.MovieView;
+import com.example.cinema.service.CatalogCache.ScreeningView;
+import com.example.cinema.service.MovieSearchIndex;
+import com.example.cinema.service.ScheduleMaterializer;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.security.Principal;
 import java.time.LocalDate;
@@ -25,19 +34,28 @@ import java.util.stream.Collectors;
 @Controller // Публичный контроллер для страниц, доступных без админки
 public class PublicController {
 
-    private final MovieRepository movieRepository; // Доступ к фильмам
-    private final ScreeningRepository screeningRepository; // Доступ к сеансам
+    private final CatalogCache catalog; // Фильмы из кэша
+    private final ScheduleMaterializer schedule; // Расписание в памяти
     private final AppUserRepository userRepository; // Доступ к пользователям
     private final PasswordEncoder passwordEncoder; // Кодировщик паролей
+    private final MovieSearchIndex searchIndex; // Поиск фильмов в памяти
+    private final CatalogEtags etags; // ETag страниц каталога
+    private final int searchMaxResults;
 
-    public PublicController(MovieRepository movieRepository,
-                            ScreeningRepository screeningRepository,
+    public PublicController(CatalogCache catalog,
+                            ScheduleMaterializer schedule,
                             AppUserRepository userRepository,
-                            PasswordEncoder passwordEncoder) {
-        this.movieRepository = movieRepository;
-        this.screeningRepository = screeningRepository;
+                            PasswordEncoder passwordEncoder,
+                            MovieSearchIndex searchIndex,
+                            CatalogEtags etags,
+                            @Value("${app.search.max-results:100}") int searchMaxResults) {
+        this.catalog = catalog;
+        this.schedule = schedule;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.searchIndex = searchIndex;
+        this.etags = etags;
+        this.searchMaxResults = searchMaxResults;
     }
 
     // Главная
@@ -115,15 +133,27 @@ public class PublicController {
 
     @GetMapping("/movies")
     public String moviesList(@RequestParam(value = "q", required = false) String query,
+                             @RequestParam(value = "after", defaultValue = "0") long after, // id последнего показанного фильма
+                             @RequestParam(value = "size", defaultValue = "24") int size,
                              Model model,
-                             Principal principal) {
+                             Principal principal,
+                             ServletWebRequest request) {
+
+        // Каталог и избранное не менялись — 304 без обращения к базе и без шаблона
+        if (notModified(request, etags.movies(request.getRequest()))) {
+            return null;
+        }
 
         // Поиск фильмов
-        List<Movie> movies;
+        List<MovieView> movies;
         if (query != null && !query.isBlank()) {
-            movies = movieRepository.findByTitleContainingIgnoreCase(query); // Поиск по подстроке в названии
+            // Индекс отдаёт id по релевантности (не больше app.search.max-results), сами фильмы — из базы по ключу
+            movies = catalog.movies(searchIndex.search(query, searchMaxResults));
         } else {
-            movies = movieRepository.findAll(); // Если строки поиска нет — показываем все фильмы
+            // Если строки поиска нет — каталог по страницам, «Показать ещё» подгружает следующую
+            KeysetPage<MovieView> page = catalog.moviesPage(after, KeysetPage.clampSize(size));
+            movies = page.items();
+            model.addAttribute("page", page);
         }
 
         model.addAttribute("movies", movies);
@@ -145,9 +175,21 @@ public class PublicController {
     }
 
     @GetMapping("/screenings")
-    public String screeningsList(Model model) {
-        List<Screening> screenings = screeningRepository.findAll(); // Получаем все сеансы
-        model.addAttribute("screenings", screenings);
+    public String screeningsList(@RequestParam(value = "afterTime", required = false)
+                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterTime,
+                                 @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+                                 @RequestParam(value = "size", defaultValue = "50") int size,
+                                 Model model,
+                                 ServletWebRequest request) {
+        if (notModified(request, etags.screenings(request.getRequest()))) {
+            return null;
+        }
+
+        // Расписание с сегодняшнего дня по страницам; курсор — время и id последнего показанного сеанса
+        LocalDateTime from = afterTime != null ? afterTime : LocalDate.now().atStartOfDay();
+        KeysetPage<ScreeningView> page = schedule.page(from, afterId, KeysetPage.clampSize(size));
+        model.addAttribute("screenings", page.items());
+        model.addAttribute("page", page);
         return "screenings/list"; // Шаблон списка всех сеансов
     }
 
@@ -156,27 +198,19 @@ public class PublicController {
                                @RequestParam(value = "date", required = false)
                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date, // Опциональная дата для фильтрации сеансов
                                Model model,
-                               Principal principal) {
+                               Principal principal,
+                               ServletWebRequest request) {
+        if (notModified(request, etags.movie(id, request.getRequest()))) {
+            return null;
+        }
 
         // Получаем фильм по id
-        Movie movie = movieRepository.findById(id)
+        MovieView movie = catalog.movie(id)
                 .orElseThrow(() -> new IllegalArgumentException("Movie not found: " + id)); // Ошибка, если фильм не найден
 
-        // Получаем все сеансы для фильма
-        List<Screening> allScreenings = screeningRepository.findByMovie_IdOrderByStartTimeAsc(id);
-
-        // Фильтруем только будущие сеансы
+        // Даты, на которые есть ещё не начавшиеся сеансы, — из расписания в памяти
         LocalDateTime now = LocalDateTime.now();
-        List<Screening> upcoming = allScreenings.stream()
-                .filter(s -> s.getStartTime().isAfter(now)) // Оставляем только сеансы, которые ещё не начались
-                .collect(Collectors.toList());
-
-        // Список доступных дат для сеансов
-        List<LocalDate> dates = upcoming.stream()
-                .map(s -> s.getStartTime().toLocalDate())
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList()); // Уникальные даты в порядке возрастания
+        List<LocalDate> dates = schedule.dates(id, now); // Уникальные даты в порядке возрастания
 
         // Выбираем дату
         LocalDate selectedDate;
@@ -187,20 +221,16 @@ public class PublicController {
         }
 
         // Сеансы на выбранную дату + группировка по залам
-        List<Screening> screeningsForDay = Collections.emptyList();
-        Map<String, List<Screening>> screeningsByHall = new LinkedHashMap<>();
+        List<ScreeningView> screeningsForDay = Collections.emptyList();
+        Map<String, List<ScreeningView>> screeningsByHall = new LinkedHashMap<>();
 
         if (selectedDate != null) {
-            screeningsForDay = upcoming.stream()
-                    .filter(s -> s.getStartTime().toLocalDate().equals(selectedDate)) // Сеансы только на выбранный день
-                    .collect(Collectors.toList());
-
-            screeningsByHall = screeningsForDay.stream()
-                    .collect(Collectors.groupingBy(
-                            Screening::getHall, // Ключ — название зала
-                            LinkedHashMap::new, // Сохраняем порядок добавления залов
-                            Collectors.toList()
-                    ));
+            // Группировка по залам уже есть в снимке дня; залы — в порядке первого сеанса
+            screeningsByHall = schedule.screeningsByHall(id, selectedDate, now);
+            screeningsForDay = screeningsByHall.values().stream()
+                    .flatMap(List::stream)
+                    .sorted(Comparator.comparing(ScreeningView::startTime))
+                    .toList();
         }
 
         // Проверка избранного для текущего пользователя
@@ -208,7 +238,8 @@ public class PublicController {
         if (principal != null) {
             AppUser user = userRepository.findByUsername(principal.getName()).orElse(null);
             if (user != null && user.getFavoriteMovies() != null) {
-                isFavorite = user.getFavoriteMovies().contains(movie); // Проверяем, добавлен ли фильм в избранное
+                isFavorite = user.getFavoriteMovies().stream()
+                        .anyMatch(m -> m.getId().equals(id)); // Проверяем, добавлен ли фильм в избранное
             }
         }
 
@@ -227,4 +258,18 @@ public class PublicController {
     public String about() {
         return "about"; // Статическая страница «О кинотеатре»
     }
+
+    // ETag совпал с If-None-Match — статус 304 уже выставлен, страницу не строим.
+    // Иначе страницу можно хранить, но каждый раз сверяться по ETag; страницы вошедшего пользователя — только браузеру
+    private static boolean notModified(ServletWebRequest request, String etag) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            CacheControl cacheControl = request.getUserPrincipal() != null
+                    ? CacheControl.noCache().cachePrivate()
+                    : CacheControl.noCache();
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.COOKIE); // Гость и вошедший получают разные страницы
+        }
+        return request.checkNotModified(etag);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.example.cinema.controller;
+
+import com.example.cinema.domain.Screening;
+import com.example.cinema.dto.SeatMapPayload;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.service.SeatInventoryService;
+import com.example.cinema.service.SeatMap;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/screenings") // JSON/SSE-доступ к карте мест для страницы бронирования
+public class SeatMapApiController {
+
+    private final ScreeningRepository screeningRepository; // Репозиторий сеансов
+    private final SeatInventoryService seatInventory;      // Кэш занятости мест
+
+    public SeatMapApiController(ScreeningRepository screeningRepository,
+                                SeatInventoryService seatInventory) {
+        this.screeningRepository = screeningRepository;
+        this.seatInventory = seatInventory;
+    }
+
+    // Карта мест в компактном виде. ETag — версия карты: если ничего не менялось, отвечаем 304 без тела
+    @GetMapping("/{screeningId}/seats")
+    public ResponseEntity<SeatMapPayload> seats(@PathVariable Long screeningId, WebRequest request) {
+
+        // Горячий путь: карта уже в памяти — ни одного запроса к базе
+        SeatMap seatMap = seatInventory.findLoaded(screeningId).orElseGet(() -> {
+            Screening screening = screeningRepository.findById(screeningId)
+                    .orElseThrow(() -> new IllegalArgumentException("Screening not found: " + screeningId));
+            return seatInventory.getSeatMap(screening);
+        });
+
+        long version = seatMap.getVersion(); // Версию читаем до битов: данные могут быть только новее версии
+        String etag = "W/\"" + version + "\"";
+        if (request.checkNotModified(etag)) {
+            return null; // 304 Not Modified, заголовки уже выставлены
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache()) // Кэшировать можно, но каждый раз сверяться по ETag
+                .body(SeatMapPayload.of(seatMap, version));
+    }
+
+    // Поток изменений карты мест; since — версия карты, с которой клиент отрисовал страницу.
+    // При переподключении браузер сам присылает Last-Event-ID, и клиент получает только пропущенное
+    @GetMapping(value = "/{screeningId}/seats/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter seatEvents(@PathVariable Long screeningId,
+                                 @RequestParam(value = "since", defaultValue = "0") long since,
+                                 @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+
+        Screening screening = screeningRepository.findById(screeningId)
+                .orElseThrow(() -> new IllegalArgumentException("Screening not found: " + screeningId));
+
+        long lastVersion = lastEventId != null ? lastEventId : since;
+        return seatInventory.subscribe(screening, lastVersion);
+    }
+}
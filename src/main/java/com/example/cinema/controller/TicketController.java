@@ -6,8 +6,16 @@ import com.example.cinema.domain.Ticket;
 import com.example.cinema.repo.AppUserRepository;
 import com.example.cinema.repo.ScreeningRepository;
 import com.example.cinema.repo.TicketRepository;
-import com.example.cinema.service.EmailService;
+import com.example.cinema.service.CheckInService;
 import com.example.cinema.service.QrCodeService;
+import com.example.cinema.service.QrImageCache;
+import com.example.cinema.service.SeatHold;
+import com.example.cinema.service.SeatHoldService;
+import com.example.cinema.service.SeatInventoryService;
+import com.example.cinema.service.SeatReservationService;
+import com.example.cinema.service.SeatsUnavailableException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,14 +23,15 @@ import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.util.UriUtils;
 
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 @Controller
 @RequestMapping("/tickets") // Все маршруты этого контроллера начинаются с /tickets
@@ -32,18 +41,27 @@ public class TicketController {
     private final TicketRepository ticketRepository;       // Репозиторий для работы с билетами
     private final AppUserRepository userRepository;        // Репозиторий пользователей (нужен для связи билетов с юзером)
     private final QrCodeService qrCodeService;             // Сервис генерации QR-кодов
-    private final EmailService emailService;               // Сервис отправки писем с билетами
+    private final SeatInventoryService seatInventory;      // Кэш занятости мест по сеансам
+    private final CheckInService checkIns; // Отменённый билет убирается и из контроля на входе
+    private final SeatReservationService reservationService; // Атомарное бронирование мест
+    private final SeatHoldService holdService;             // Временное удержание мест до оплаты
 
     public TicketController(ScreeningRepository screeningRepository,
                             TicketRepository ticketRepository,
                             AppUserRepository userRepository,
                             QrCodeService qrCodeService,
-                            EmailService emailService) {
+                            SeatInventoryService seatInventory,
+                            CheckInService checkIns,
+                            SeatReservationService reservationService,
+                            SeatHoldService holdService) {
         this.screeningRepository = screeningRepository;
         this.ticketRepository = ticketRepository;
         this.userRepository = userRepository;
         this.qrCodeService = qrCodeService;
-        this.emailService = emailService;
+        this.seatInventory = seatInventory;
+        this.checkIns = checkIns;
+        this.reservationService = reservationService;
+        this.holdService = holdService;
     }
 
     // ШАГ 1. ВЫБОР МЕСТ
@@ -71,33 +89,29 @@ public class TicketController {
             });
         }
 
-        int rowsCount = 10;     // Количество рядов в зале
-        int seatsPerRow = 18;   // Количество мест в каждом ряду
-
-        // Находим уже занятые места для этого сеанса
-        Set<String> occupiedSeats = ticketRepository.findByScreening_Id(screeningId)
-                .stream()
-                .map(Ticket::getSeat)
-                .collect(Collectors.toSet());
-
-        // Списки номеров рядов и мест для отображения в шаблоне
-        List<Integer> rows = IntStream.rangeClosed(1, rowsCount).boxed().collect(Collectors.toList());
-        List<Integer> seats = IntStream.rangeClosed(1, seatsPerRow).boxed().collect(Collectors.toList());
-
+        // Саму карту мест страница загружает из /api/screenings/{id}/seats и рисует на клиенте
         model.addAttribute("ticket", ticket);
-        model.addAttribute("rows", rows);
-        model.addAttribute("seats", seats);
-        model.addAttribute("occupiedSeats", occupiedSeats);      // Эти места в шаблоне делаются недоступными
         model.addAttribute("selectedSeats", new ArrayList<String>()); // Список выбранных мест (изначально пустой)
 
         return "tickets/book"; // Шаблон выбора мест
     }
 
+    // Покупатель вернулся со страницы оплаты — отпускаем его удержанные места (только свою бронь)
+    @PostMapping("/book/{screeningId}/release")
+    public String releaseHold(@PathVariable Long screeningId,
+                              @RequestParam("holdId") String holdId,
+                              Authentication authentication,
+                              HttpServletRequest request) {
+        holdService.release(holdId, holdOwner(authentication, request));
+        return "redirect:/tickets/book/" + screeningId;
+    }
+
     // После выбора мест показываем страницу оплаты
     @PostMapping("/book")
     public String showPaymentPage(@ModelAttribute("ticket") Ticket ticketTemplate,
                                   @RequestParam("selectedSeats") String selectedSeatsRaw,
                                   Authentication authentication,
+                                  HttpServletRequest request,
                                   Model model) {
 
         // Если места не выбраны — возвращаемся к выбору мест
@@ -114,6 +128,54 @@ public class TicketController {
                 .filter(s -> !s.isEmpty())
                 .collect(Collectors.toList());
 
+        // Удерживаем выбранные места на время оплаты, чтобы их не купил кто-то другой
+        SeatHold hold;
+        try {
+            hold = holdService.place(screening, selectedSeats, holdOwner(authentication, request));
+        } catch (SeatsUnavailableException | IllegalArgumentException e) {
+            return "redirect:/tickets/book/" + screening.getId() + "?occupied";
+        }
+
+        return paymentPage(screening, ticketTemplate.getCustomerName(), hold, authentication, model);
+    }
+
+    // «Лучшие N мест рядом»: сервер сам подбирает и сразу удерживает блок мест
+    @PostMapping("/book/best")
+    public String bookBestAvailable(@ModelAttribute("ticket") Ticket ticketTemplate,
+                                    @RequestParam("seatsCount") int seatsCount,
+                                    Authentication authentication,
+                                    HttpServletRequest request,
+                                    Model model) {
+
+        Screening screening = screeningRepository.findById(ticketTemplate.getScreening().getId())
+                .orElseThrow(() -> new IllegalArgumentException("Screening not found"));
+
+        SeatHold hold;
+        try {
+            hold = holdService.placeBestAvailable(screening, seatsCount, holdOwner(authentication, request));
+        } catch (SeatsUnavailableException | IllegalArgumentException e) {
+            return "redirect:/tickets/book/" + screening.getId() + "?noBlock"; // Столько мест рядом уже нет
+        }
+
+        return paymentPage(screening, ticketTemplate.getCustomerName(), hold, authentication, model);
+    }
+
+    // Владелец брони: пользователь, а у гостя — его сессия
+    private static String holdOwner(Authentication authentication, HttpServletRequest request) {
+        if (authentication != null && authentication.isAuthenticated()) {
+            return "user:" + authentication.getName();
+        }
+        return "session:" + request.getSession().getId();
+    }
+
+    // Страница оплаты для удержанных мест
+    private String paymentPage(Screening screening,
+                               String customerName,
+                               SeatHold hold,
+                               Authentication authentication,
+                               Model model) {
+
+        List<String> selectedSeats = hold.getSeats();
         int count = selectedSeats.size(); // Сколько мест выбрано
         BigDecimal pricePer = screening.getPrice() != null ? screening.getPrice() : BigDecimal.ZERO;
         BigDecimal total = pricePer.multiply(BigDecimal.valueOf(count)); // Общая цена
@@ -130,13 +192,15 @@ public class TicketController {
         }
 
         model.addAttribute("screening", screening);
-        model.addAttribute("customerName", ticketTemplate.getCustomerName()); // Имя покупателя с предыдущего шага
+        model.addAttribute("customerName", customerName); // Имя покупателя с предыдущего шага
         model.addAttribute("selectedSeats", selectedSeats);
         model.addAttribute("selectedSeatsRaw", String.join(",", selectedSeats)); // Строка для повторной передачи
         model.addAttribute("ticketsCount", count);
         model.addAttribute("totalPrice", total);
         model.addAttribute("isAuthenticated", isAuthenticated);
         model.addAttribute("prefilledEmail", prefilledEmail); // Почта, подставленная для удобства
+        model.addAttribute("holdId", hold.getId());           // Бронь, которую выкупаем при оплате
+        model.addAttribute("holdExpiresAt", hold.getExpiresAt().toEpochMilli()); // До какого момента держим места
 
         return "tickets/payment"; // Страница оплаты
     }
@@ -148,7 +212,9 @@ public class TicketController {
                                  @RequestParam("customerName") String customerName,
                                  @RequestParam("selectedSeats") String selectedSeatsRaw,
                                  @RequestParam(value = "email", required = false) String email,
+                                 @RequestParam(value = "holdId", required = false) String holdId,
                                  Authentication authentication,
+                                 HttpServletRequest request,
                                  Model model) {
 
         Screening screening = screeningRepository.findById(screeningId)
@@ -187,46 +253,31 @@ public class TicketController {
             model.addAttribute("totalPrice", total);
             model.addAttribute("isAuthenticated", false);
             model.addAttribute("prefilledEmail", null);
+            model.addAttribute("holdId", holdId);
+            holdService.find(holdId).ifPresent(h -> model.addAttribute("holdExpiresAt", h.getExpiresAt().toEpochMilli()));
 
             return "tickets/payment";
         }
 
         // тут могла бы быть реальная платёжка :)
 
-        List<Ticket> createdTickets = new ArrayList<>();
-
-        // Создаём билеты для каждого выбранного места (проверяем, что место ещё свободно)
-        for (String seat : selectedSeats) {
-            if (!ticketRepository.existsByScreening_IdAndSeat(screeningId, seat)) {
-                Ticket ticket = new Ticket();
-                ticket.setScreening(screening);
-                ticket.setUser(user); // null для гостя
-                ticket.setCustomerName(customerName);
-                ticket.setSeat(seat);
-                ticket.setEmail(email);
-                ticket.setQrToken(UUID.randomUUID().toString()); // Уникальный токен для QR-кода
-
-                ticketRepository.save(ticket);
-                createdTickets.add(ticket);
-            }
-        }
-
-        // Если все места уже заняты — возвращаемся к выбору с флагом occupied
-        if (createdTickets.isEmpty()) {
-            return "redirect:/tickets/book/" + screeningId + "?occupied";
+        // Бронируем все выбранные места разом: если хоть одно уже занято — не создаём ни одного билета
+        List<Ticket> createdTickets;
+        try {
+            createdTickets = reservationService.reserve(screening, user, customerName, email, selectedSeats, holdId,
+                    holdOwner(authentication, request));
+        } catch (SeatsUnavailableException | IllegalArgumentException e) {
+            return "redirect:/tickets/book/" + screeningId + "?occupied"; // Возвращаемся к выбору с флагом occupied
         }
 
-        // Генерируем QR-коды (в base64) для свежесозданных билетов
+        // Генерируем QR-коды (в base64) для свежесозданных билетов — параллельно, дожидаемся всех
+        List<String> qrTexts = createdTickets.stream()
+                .map(t -> "TICKET:" + t.getQrToken()) // Содержимое, зашитое в QR
+                .toList();
+        List<String> images = qrCodeService.generateQrBase64(qrTexts, 220, 220);
         Map<Long, String> qrCodes = new HashMap<>();
-        for (Ticket t : createdTickets) {
-            String text = "TICKET:" + t.getQrToken(); // Содержимое, зашитое в QR
-            String base64 = qrCodeService.generateQrBase64(text, 220, 220);
-            qrCodes.put(t.getId(), base64);
-        }
-
-        // Отправка письма с билетами, если указан email
-        if (email != null && !email.isBlank()) {
-            emailService.sendTicketsEmail(email, createdTickets, qrCodes);
+        for (int i = 0; i < createdTickets.size(); i++) {
+            qrCodes.put(createdTickets.get(i).getId(), images.get(i));
         }
 
         model.addAttribute("screening", screening);
@@ -234,7 +285,7 @@ public class TicketController {
         model.addAttribute("qrCodes", qrCodes);
         model.addAttribute("totalPrice", total);
         model.addAttribute("ticketsCount", createdTickets.size());
-        model.addAttribute("emailUsed", email); // Почта, на которую отправили билеты
+        model.addAttribute("emailUsed", email); // Почта, на которую уйдёт письмо с билетами
 
         return "tickets/success"; // Страница успешной покупки
     }
@@ -284,6 +335,8 @@ public class TicketController {
         }
 
         ticketRepository.delete(ticket); // Удаляем билет
+        seatInventory.markReleased(ticket.getScreening().getId(), ticket.getSeat()); // Место снова свободно
+        checkIns.ticketDeleted(ticket.getScreening().getId(), ticket.getSeat()); // Токен билета больше не пускает на вход
 
         return "redirect:/tickets/guest?email=" + encodedEmail + "&cancelled=1"; // Флаг успешной отмены
     }
@@ -292,7 +345,8 @@ public class TicketController {
 
     @GetMapping("/qr/{id}")
     public ResponseEntity<byte[]> getTicketQr(@PathVariable Long id,
-                                              Authentication authentication) {
+                                              Authentication authentication,
+                                              WebRequest request) {
 
         // Только авторизованный пользователь может запросить QR
         if (authentication == null || !authentication.isAuthenticated()) {
@@ -312,11 +366,22 @@ public class TicketController {
         }
 
         String text = "TICKET:" + ticket.getQrToken();
-        byte[] png = qrCodeService.generateQrBytes(text, 220, 220); // Генерируем PNG с QR-кодом
+        QrImageCache.QrImage qr = qrCodeService.renderQr(text, 220, 220); // PNG с QR-кодом (обычно из кэша)
+
+        // Картинка билета не меняется: браузер хранит её долго, а при повторной проверке получает 304.
+        // private — ответ зависит от пользователя, общие кэши его хранить не должны
+        CacheControl cacheControl = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+        if (request.checkNotModified(qr.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED) // ETag уже выставлен checkNotModified
+                    .cacheControl(cacheControl)
+                    .build();
+        }
 
         return ResponseEntity
                 .ok()
+                .eTag(qr.etag())
+                .cacheControl(cacheControl)
                 .contentType(MediaType.IMAGE_PNG) // Возвращаем бинарный PNG
-                .body(png);
+                .body(qr.png());
     }
 }
\ No newline at end of file
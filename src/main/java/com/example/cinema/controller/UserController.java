@@ -3,10 +3,16 @@ package com.example.cinema.controller;
 import com.example.cinema.domain.AppUser;
 import com.example.cinema.domain.Movie;
 import com.example.cinema.domain.Ticket;
+import com.example.cinema.dto.KeysetPage;
 import com.example.cinema.repo.AppUserRepository;
 import com.example.cinema.repo.MovieRepository;
 import com.example.cinema.repo.TicketRepository;
+import com.example.cinema.service.CatalogEtags;
+import com.example.cinema.service.CheckInService;
+import com.example.cinema.service.SeatInventoryService;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
@@ -27,36 +33,53 @@ public class UserController {
     private final TicketRepository ticketRepository; // Репозиторий для работы с билетами пользователя
     private final AppUserRepository userRepository;  // Репозиторий пользователей
     private final MovieRepository movieRepository;   // Репозиторий фильмов (для избранного)
+    private final SeatInventoryService seatInventory; // Кэш занятости мест
+    private final CheckInService checkIns; // Отменённый билет убирается и из контроля на входе
+    private final CatalogEtags etags; // Версия избранного входит в ETag страниц каталога
 
     public UserController(TicketRepository ticketRepository,
                           AppUserRepository userRepository,
-                          MovieRepository movieRepository) {
+                          MovieRepository movieRepository,
+                          SeatInventoryService seatInventory,
+                          CheckInService checkIns,
+                          CatalogEtags etags) {
         this.ticketRepository = ticketRepository;
         this.userRepository = userRepository;
         this.movieRepository = movieRepository;
+        this.seatInventory = seatInventory;
+        this.checkIns = checkIns;
+        this.etags = etags;
     }
 
     @GetMapping("/profile")
-    public String profile(Model model, Authentication authentication) {
+    public String profile(// Курсоры «Показать ещё»: время сеанса и id последнего показанного билета в каждом списке
+                          @RequestParam(value = "upcomingAfter", required = false)
+                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime upcomingAfter,
+                          @RequestParam(value = "upcomingAfterId", defaultValue = "0") long upcomingAfterId,
+                          @RequestParam(value = "pastBefore", required = false)
+                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime pastBefore,
+                          @RequestParam(value = "pastBeforeId", defaultValue = "0") long pastBeforeId,
+                          @RequestParam(value = "size", defaultValue = "20") int size,
+                          Model model,
+                          Authentication authentication) {
         String username = authentication.getName(); // Текущий логин пользователя
 
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new IllegalArgumentException("User not found: " + username)); // Проверяем, что пользователь существует
 
-        List<Ticket> allTickets = ticketRepository.findByUser_Username(username); // Все билеты пользователя
         LocalDateTime now = LocalDateTime.now();
+        int limit = KeysetPage.clampSize(size);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
 
-        // Будущие билеты (сеанс ещё не начался)
-        List<Ticket> upcomingTickets = allTickets.stream()
-                .filter(t -> t.getScreening().getStartTime().isAfter(now))
-                .sorted(Comparator.comparing(t -> t.getScreening().getStartTime())) // Сортируем по времени сеанса
-                .collect(Collectors.toList());
+        // Будущие билеты (сеанс ещё не начался), по времени сеанса
+        KeysetPage<Ticket> upcomingTickets = KeysetPage.of(upcomingAfter != null
+                ? ticketRepository.findUserPageAfter(username, upcomingAfter, upcomingAfterId, pageRequest)
+                : ticketRepository.findUserPageAfter(username, now, Long.MAX_VALUE, pageRequest), limit);
 
-        // Прошедшие билеты (сеанс уже был)
-        List<Ticket> pastTickets = allTickets.stream()
-                .filter(t -> t.getScreening().getStartTime().isBefore(now))
-                .sorted(Comparator.comparing(t -> t.getScreening().getStartTime()))
-                .collect(Collectors.toList());
+        // Прошедшие билеты (сеанс уже был), от последних к первым
+        KeysetPage<Ticket> pastTickets = KeysetPage.of(pastBefore != null
+                ? ticketRepository.findUserPageBefore(username, pastBefore, pastBeforeId, pageRequest)
+                : ticketRepository.findUserPageBefore(username, now, 0L, pageRequest), limit);
 
         // Последние 4 избранных фильма (по id, с конца)
         List<Movie> recentFavorites = user.getFavoriteMovies().stream()
@@ -65,8 +88,10 @@ public class UserController {
                 .collect(Collectors.toList());
 
         model.addAttribute("user", user);
-        model.addAttribute("upcomingTickets", upcomingTickets);
-        model.addAttribute("pastTickets", pastTickets);
+        model.addAttribute("upcomingTickets", upcomingTickets.items());
+        model.addAttribute("upcomingPage", upcomingTickets);
+        model.addAttribute("pastTickets", pastTickets.items());
+        model.addAttribute("pastPage", pastTickets);
         model.addAttribute("recentFavorites", recentFavorites);
 
         return "user/profile"; // Шаблон страницы профиля
@@ -107,6 +132,8 @@ public class UserController {
                 // Удалять можно только билет на будущий сеанс
                 if (ticket.getScreening().getStartTime().isAfter(now)) {
                     ticketRepository.delete(ticket);
+                    seatInventory.markReleased(ticket.getScreening().getId(), ticket.getSeat()); // Освобождаем место в кэше
+                    checkIns.ticketDeleted(ticket.getScreening().getId(), ticket.getSeat()); // Токен билета больше не пускает на вход
                 }
             }
         }
@@ -142,6 +169,7 @@ public class UserController {
         }
 
         userRepository.save(user); // Сохраняем изменения избранного
+        etags.favoritesChanged(user.getUsername()); // Страницы каталога с отметками избранного устарели
 
         // Возвращаем пользователя обратно на страницу, откуда он пришёл
         String referer = request.getHeader("Referer");
@@ -0,0 +1,150 @@
+package com.example.cinema.controller.admin;
+
+import com.example.cinema.domain.Hall;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.repo.TicketRepository;
+import com.example.cinema.service.HallLayout;
+import com.example.cinema.service.HallLayoutCache;
+import com.example.cinema.service.ScheduleMaterializer;
+import com.example.cinema.service.SeatInventoryService;
+import jakarta.validation.Valid;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+@Controller // MVC-контроллер для управления залами и их схемами
+@RequestMapping("/admin/halls")
+@PreAuthorize("hasRole('ADMIN')") // Только для администраторов
+public class AdminHallController {
+
+    private final HallRepository hallRepository;           // Репозиторий залов
+    private final ScreeningRepository screeningRepository; // Нужен, чтобы найти сеансы зала
+    private final TicketRepository ticketRepository;       // Проданные места — их нельзя убрать из схемы
+    private final HallLayoutCache hallLayouts;             // Кэш разобранных схем
+    private final SeatInventoryService seatInventory;      // Кэш занятости мест по сеансам
+    private final ScheduleMaterializer schedule;           // В расписании — название зала
+
+    public AdminHallController(HallRepository hallRepository,
+                               ScreeningRepository screeningRepository,
+                               TicketRepository ticketRepository,
+                               HallLayoutCache hallLayouts,
+                               SeatInventoryService seatInventory,
+                               ScheduleMaterializer schedule) {
+        this.hallRepository = hallRepository;
+        this.screeningRepository = screeningRepository;
+        this.ticketRepository = ticketRepository;
+        this.hallLayouts = hallLayouts;
+        this.seatInventory = seatInventory;
+        this.schedule = schedule;
+    }
+
+    // список залов
+    @GetMapping
+    public String list(Model model) {
+        model.addAttribute("halls", hallRepository.findAllByOrderByNameAsc());
+        return "admin/halls/list";
+    }
+
+    // форма создания
+    @GetMapping("/new")
+    public String createForm(Model model) {
+        model.addAttribute("hall", new Hall(null, HallLayout.uniform(10, 18))); // Заготовка: 10 рядов по 18 мест
+        return "admin/halls/form";
+    }
+
+    // создание
+    @PostMapping
+    public String create(@Valid @ModelAttribute("hall") Hall hall, BindingResult bindingResult) {
+        validate(hall, bindingResult);
+        if (bindingResult.hasErrors()) {
+            return "admin/halls/form";
+        }
+        hallRepository.save(hall);
+        return "redirect:/admin/halls";
+    }
+
+    // форма редактирования
+    @GetMapping("/{id}/edit")
+    public String editForm(@PathVariable Long id, Model model) {
+        Hall hall = hallRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Hall not found: " + id));
+        model.addAttribute("hall", hall);
+        return "admin/halls/form";
+    }
+
+    // обновление
+    @PostMapping("/{id}")
+    public String update(@PathVariable Long id,
+                         @Valid @ModelAttribute("hall") Hall hall,
+                         BindingResult bindingResult) {
+        hall.setId(id);
+        validate(hall, bindingResult);
+        if (bindingResult.hasErrors()) {
+            return "admin/halls/form";
+        }
+        hallRepository.save(hall);
+
+        // Схема могла измениться — карты мест сеансов зала перечитаются по новой схеме
+        hallLayouts.evict(id);
+        screeningRepository.findIdsByHallId(id).forEach(seatInventory::evict);
+        schedule.hallChanged(id); // Название зала могло измениться
+        return "redirect:/admin/halls";
+    }
+
+    // удаление: зал с сеансами удалить нельзя
+    @PostMapping("/{id}/delete")
+    public String delete(@PathVariable Long id) {
+        if (screeningRepository.existsByHall_Id(id)) {
+            return "redirect:/admin/halls?inUse";
+        }
+        hallRepository.deleteById(id);
+        hallLayouts.evict(id);
+        return "redirect:/admin/halls";
+    }
+
+    // Проверяем схему и уникальность названия; схему сохраняем в нормализованном виде
+    private void validate(Hall hall, BindingResult bindingResult) {
+        if (hall.getName() != null) {
+            hall.setName(hall.getName().strip());
+        }
+        if (hall.getName() != null && hallRepository.findByName(hall.getName())
+                .filter(other -> !other.getId().equals(hall.getId()))
+                .isPresent()) {
+            bindingResult.rejectValue("name", "hall.name.duplicate", "Зал с таким названием уже есть");
+        }
+        if (bindingResult.hasFieldErrors("layout")) {
+            return;
+        }
+
+        HallLayout layout;
+        try {
+            layout = HallLayout.parse(hall.getLayout());
+        } catch (IllegalArgumentException e) {
+            bindingResult.rejectValue("layout", "hall.layout.invalid", e.getMessage());
+            return;
+        }
+
+        if (hall.getId() != null) {
+            // Проданные места и места, удерживаемые до оплаты, во всех сеансах зала
+            Set<String> taken = new TreeSet<>(ticketRepository.findSeatsByHallId(hall.getId()));
+            screeningRepository.findIdsByHallId(hall.getId())
+                    .forEach(screeningId -> taken.addAll(seatInventory.heldSeats(screeningId)));
+            List<String> lost = taken.stream()
+                    .filter(seat -> layout.indexOf(seat) < 0)
+                    .toList();
+            if (!lost.isEmpty()) {
+                bindingResult.rejectValue("layout", "hall.layout.soldSeats",
+                        "В новой схеме нет уже проданных или забронированных мест: " + String.join(", ", lost));
+                return;
+            }
+        }
+        hall.setLayout(String.join("\n", layout.getRowPlans()));
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.cinema.controller.admin;
 
 import com.example.cinema.domain.Movie;
+import com.example.cinema.dto.KeysetPage;
 import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.service.CatalogCache;
+import com.example.cinema.service.MovieAutocomplete;
+import com.example.cinema.service.MovieSearchIndex;
 import com.example.cinema.service.MovieService;
 import com.example.cinema.service.PosterStorageService;
+import com.example.cinema.service.ScheduleMaterializer;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -22,19 +28,36 @@ public class AdminMovieController {
     private final MovieRepository movieRepository;
     private final PosterStorageService posterStorageService;
     private final MovieService movieService; // Новое поле
+    private final MovieSearchIndex searchIndex; // Поисковый индекс обновляется сразу после сохранения
+    private final MovieAutocomplete autocomplete; // Подсказки поиска
+    private final CatalogCache catalog; // Кэш публичных страниц
+    private final ScheduleMaterializer schedule; // Карточка фильма есть и в расписании
 
     public AdminMovieController(MovieRepository movieRepository,
                                 PosterStorageService posterStorageService,
-                                MovieService movieService) { // Добавили movieService
+                                MovieService movieService, // Добавили movieService
+                                MovieSearchIndex searchIndex,
+                                MovieAutocomplete autocomplete,
+                                CatalogCache catalog,
+                                ScheduleMaterializer schedule) {
         this.movieRepository = movieRepository;
         this.posterStorageService = posterStorageService;
         this.movieService = movieService;
+        this.searchIndex = searchIndex;
+        this.autocomplete = autocomplete;
+        this.catalog = catalog;
+        this.schedule = schedule;
     }
 
-    // Список всех фильмов
+    // Список фильмов по страницам (after — id последнего показанного)
     @GetMapping
-    public String list(Model model) {
-        model.addAttribute("movies", movieRepository.findAll()); // Передаём в модель список всех фильмов из базы
+    public String list(@RequestParam(value = "after", defaultValue = "0") long after,
+                       @RequestParam(value = "size", defaultValue = "50") int size,
+                       Model model) {
+        int limit = KeysetPage.clampSize(size);
+        KeysetPage<Movie> page = KeysetPage.of(movieRepository.findPageAfter(after, PageRequest.of(0, limit + 1)), limit);
+        model.addAttribute("movies", page.items()); // Передаём в модель страницу фильмов из базы
+        model.addAttribute("page", page);
         return "admin/movies/list"; // Отображаем шаблон со списком фильмов
     }
 
@@ -85,7 +108,11 @@ public class AdminMovieController {
             return "admin/movies/form"; // Возвращаем форму с сообщением об ошибке
         }
 
-        movieRepository.save(movie); // Сохраняем фильм (новый или обновлённый) в базе
+        Movie saved = movieRepository.save(movie); // Сохраняем фильм (новый или обновлённый) в базе
+        searchIndex.put(saved);
+        autocomplete.invalidate();
+        catalog.invalidateMovies();
+        schedule.movieChanged(saved.getId());
         return "redirect:/admin/movies"; // После успешного сохранения редиректим на список фильмов
     }
 
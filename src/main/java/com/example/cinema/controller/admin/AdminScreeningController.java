@@ -1,33 +1,77 @@
 package com.example.cinema.controller.admin;
 
 import com.example.cinema.domain.Screening;
-import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.dto.KeysetPage;
+import com.example.cinema.repo.HallRepository;
 import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.repo.TicketRepository;
+import com.example.cinema.service.CatalogCache;
+import com.example.cinema.service.CheckInService;
+import com.example.cinema.service.FavoriteScreeningNotifier;
+import com.example.cinema.service.HallLayout;
+import com.example.cinema.service.HallLayoutCache;
+import com.example.cinema.service.MovieAutocomplete;
+import com.example.cinema.service.ScheduleMaterializer;
+import com.example.cinema.service.SeatInventoryService;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
 @Controller // MVC-контроллер для управления сеансами
 @RequestMapping("/admin/screenings") // Все обработчики внутри работают под URL /admin/screenings
 @PreAuthorize("hasRole('ADMIN')") // Доступ к этому контроллеру только для пользователей с ролью ADMIN
 public class AdminScreeningController {
 
     private final ScreeningRepository screeningRepository; // Репозиторий для работы с сеансами
-    private final MovieRepository movieRepository; // Репозиторий для получения списка фильмов
+    private final CatalogCache catalog; // Список фильмов для форм
+    private final ScheduleMaterializer schedule; // Расписание в памяти для публичных страниц
+    private final HallRepository hallRepository; // Репозиторий для получения списка залов
+    private final SeatInventoryService seatInventory; // Кэш занятости мест по сеансам
+    private final CheckInService checkIns; // Билеты изменённого сеанса перечитываются на входе
+    private final TicketRepository ticketRepository; // Проданные места — при смене зала они должны в нём быть
+    private final HallLayoutCache hallLayouts; // Схема нового зала
+    private final FavoriteScreeningNotifier favoriteNotifier; // Уведомления поклонникам фильма
+    private final MovieAutocomplete autocomplete; // Ранг подсказок зависит от числа сеансов
 
     public AdminScreeningController(ScreeningRepository screeningRepository,
-                                    MovieRepository movieRepository) {
+                                    CatalogCache catalog,
+                                    ScheduleMaterializer schedule,
+                                    HallRepository hallRepository,
+                                    SeatInventoryService seatInventory,
+                                    CheckInService checkIns,
+                                    TicketRepository ticketRepository,
+                                    HallLayoutCache hallLayouts,
+                                    FavoriteScreeningNotifier favoriteNotifier,
+                                    MovieAutocomplete autocomplete) {
         this.screeningRepository = screeningRepository; // Внедрение репозитория сеансов через конструктор
-        this.movieRepository = movieRepository; // Внедрение репозитория фильмов через конструктор
+        this.catalog = catalog;
+        this.schedule = schedule;
+        this.hallRepository = hallRepository;
+        this.seatInventory = seatInventory;
+        this.checkIns = checkIns;
+        this.ticketRepository = ticketRepository;
+        this.hallLayouts = hallLayouts;
+        this.favoriteNotifier = favoriteNotifier;
+        this.autocomplete = autocomplete;
     }
 
-    // список сеансов
+    // список сеансов по страницам (after — id последнего показанного)
     @GetMapping
-    public String list(Model model) {
-        model.addAttribute("screenings", screeningRepository.findAll()); // Передаём все сеансы в модель
+    public String list(@RequestParam(value = "after", defaultValue = "0") long after,
+                       @RequestParam(value = "size", defaultValue = "50") int size,
+                       Model model) {
+        int limit = KeysetPage.clampSize(size);
+        KeysetPage<Screening> page = KeysetPage.of(screeningRepository.findPageAfter(after, PageRequest.of(0, limit + 1)), limit);
+        model.addAttribute("screenings", page.items()); // Передаём страницу сеансов в модель
+        model.addAttribute("page", page);
         return "admin/screenings/list"; // Шаблон для отображения списка сеансов
     }
 
@@ -35,7 +79,8 @@ public class AdminScreeningController {
     @GetMapping("/new")
     public String createForm(Model model) {
         model.addAttribute("screening", new Screening()); // Пустой объект сеанса для формы
-        model.addAttribute("movies", movieRepository.findAll()); // Список фильмов для выбора в форме
+        model.addAttribute("movies", catalog.movies()); // Список фильмов для выбора в форме
+        model.addAttribute("halls", hallRepository.findAllByOrderByNameAsc()); // Список залов для выбора в форме
         return "admin/screenings/form"; // Общий шаблон формы создания/редактирования
     }
 
@@ -45,10 +90,14 @@ public class AdminScreeningController {
                          BindingResult bindingResult,
                          Model model) {
         if (bindingResult.hasErrors()) { // Если есть ошибки валидации — возвращаем форму
-            model.addAttribute("movies", movieRepository.findAll()); // Повторно добавляем фильмы для селекта
+            model.addAttribute("movies", catalog.movies()); // Повторно добавляем фильмы для селекта
+            model.addAttribute("halls", hallRepository.findAllByOrderByNameAsc());
             return "admin/screenings/form";
         }
-        screeningRepository.save(screening); // Сохраняем новый сеанс в БД
+        Screening saved = screeningRepository.save(screening); // Сохраняем новый сеанс в БД
+        favoriteNotifier.screeningAdded(saved); // Рассылка поклонникам фильма — в фоне, запрос не ждёт
+        autocomplete.invalidate();
+        schedule.screeningSaved(saved); // Пересобирается только день нового сеанса
         return "redirect:/admin/screenings"; // После сохранения редирект на список
     }
 
@@ -58,7 +107,8 @@ public class AdminScreeningController {
         Screening screening = screeningRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Screening not found: " + id)); // Если сеанс не найден — ошибка
         model.addAttribute("screening", screening); // Существующий сеанс для редактирования
-        model.addAttribute("movies", movieRepository.findAll()); // Список фильмов для селекта
+        model.addAttribute("movies", catalog.movies()); // Список фильмов для селекта
+        model.addAttribute("halls", hallRepository.findAllByOrderByNameAsc()); // Список залов для селекта
         return "admin/screenings/form"; // Та же форма, но с заполненными данными
     }
 
@@ -68,12 +118,18 @@ public class AdminScreeningController {
                          @Valid @ModelAttribute("screening") Screening screening,
                          BindingResult bindingResult,
                          Model model) {
+        validateSeats(id, screening, bindingResult);
         if (bindingResult.hasErrors()) { // Проверка ошибок валидации при обновлении
-            model.addAttribute("movies", movieRepository.findAll());
+            model.addAttribute("movies", catalog.movies());
+            model.addAttribute("halls", hallRepository.findAllByOrderByNameAsc());
             return "admin/screenings/form";
         }
         screening.setId(id); // Явно устанавливаем id, чтобы сохранить изменения существующего сеанса
-        screeningRepository.save(screening); // Сохраняем обновлённый сеанс
+        Screening saved = screeningRepository.save(screening); // Сохраняем обновлённый сеанс
+        seatInventory.evict(id); // Время начала или зал могли измениться — карта мест перечитается
+        checkIns.screeningChanged(id); // Как и время, когда пускают на вход
+        autocomplete.invalidate();
+        schedule.screeningSaved(saved); // Прежний день сеанса и новый
         return "redirect:/admin/screenings"; // Редирект обратно к списку
     }
 
@@ -81,6 +137,27 @@ public class AdminScreeningController {
     @PostMapping("/{id}/delete")
     public String delete(@PathVariable Long id) {
         screeningRepository.deleteById(id); // Удаляем сеанс по id
+        seatInventory.evict(id);
+        checkIns.screeningChanged(id);
+        autocomplete.invalidate();
+        schedule.screeningDeleted(id);
         return "redirect:/admin/screenings"; // После удаления возвращаемся к списку
     }
+
+    // Проданные и удерживаемые места сеанса должны быть в схеме зала — как при изменении схемы в AdminHallController
+    private void validateSeats(Long id, Screening screening, BindingResult bindingResult) {
+        if (screening.getHall() == null || bindingResult.hasFieldErrors("hall")) {
+            return;
+        }
+        HallLayout layout = hallLayouts.layoutOf(screening.getHall());
+        Set<String> taken = new TreeSet<>(ticketRepository.findSeatsByScreeningId(id));
+        taken.addAll(seatInventory.heldSeats(id));
+        List<String> lost = taken.stream()
+                .filter(seat -> layout.indexOf(seat) < 0)
+                .toList();
+        if (!lost.isEmpty()) {
+            bindingResult.rejectValue("hall", "screening.hall.soldSeats",
+                    "В этом зале нет уже проданных или забронированных мест: " + String.join(", ", lost));
+        }
+    }
 }
\ No newline at end of file
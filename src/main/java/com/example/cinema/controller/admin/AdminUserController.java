@@ -1,8 +1,12 @@
 package com.example.cinema.controller.admin;
 
 import com.example.cinema.domain.AppUser;
+import com.example.cinema.dto.KeysetPage;
 import com.example.cinema.repo.AppUserRepository;
 import com.example.cinema.repo.TicketRepository;
+import com.example.cinema.service.CheckInService;
+import com.example.cinema.service.SeatInventoryService;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -17,19 +21,29 @@ public class AdminUserController {
 
     private final AppUserRepository userRepository; // Репозиторий для работы с пользователями
     private final TicketRepository ticketRepository; // Репозиторий для работы с билетами
+    private final SeatInventoryService seatInventory; // Кэш занятости мест
+    private final CheckInService checkIns; // Билеты удалённого пользователя больше не пускают на вход
 
     // Инжектируем репозитории
     public AdminUserController(AppUserRepository userRepository,
-                               TicketRepository ticketRepository) {
+                               TicketRepository ticketRepository,
+                               SeatInventoryService seatInventory,
+                               CheckInService checkIns) {
         this.userRepository = userRepository; // Сохраняем репозиторий пользователей
         this.ticketRepository = ticketRepository; // Сохраняем репозиторий билетов
+        this.seatInventory = seatInventory;
+        this.checkIns = checkIns;
     }
 
-    // Получить список всех пользователей
+    // Получить список пользователей по страницам (after — id последнего показанного)
     @GetMapping
-    public String listUsers(Model model) {
-        // Получаем всех пользователей
-        model.addAttribute("users", userRepository.findAll()); // Кладём список пользователей в модель
+    public String listUsers(@RequestParam(value = "after", defaultValue = "0") long after,
+                            @RequestParam(value = "size", defaultValue = "50") int size,
+                            Model model) {
+        int limit = KeysetPage.clampSize(size);
+        KeysetPage<AppUser> page = KeysetPage.of(userRepository.findPageAfter(after, PageRequest.of(0, limit + 1)), limit);
+        model.addAttribute("users", page.items()); // Кладём страницу пользователей в модель
+        model.addAttribute("page", page);
         return "admin/users/list";  // Шаблон, который отображает список пользователей
     }
 
@@ -50,6 +64,8 @@ public class AdminUserController {
 
         // Удаляем все билеты пользователя
         ticketRepository.deleteByUser_Id(id); // Сначала очищаем связанные билеты, чтобы не оставлять висящие записи
+        seatInventory.evictAll(); // Билеты могли быть на любых сеансах — карты мест перечитаются из базы
+        checkIns.ticketsDeleted();
 
         // Удаляем самого пользователя
         userRepository.delete(user); // Удаляем пользователя из базы
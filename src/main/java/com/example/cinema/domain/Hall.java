@@ -0,0 +1,60 @@
+package com.example.cinema.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+
+@Entity
+@Table(name = "halls") // Таблица залов в базе
+public class Hall {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY) // Автоинкрементный ID
+    private Long id;
+
+    @NotBlank // Название зала обязательно
+    @Column(unique = true)
+    private String name;
+
+    /**
+     * Схема зала: одна строка на ряд, один символ на позицию в ряду.
+     * S — обычное место, V — VIP, W — место для зрителя на коляске, _ — проход (места нет).
+     * Места в ряду нумеруются слева направо без учёта проходов.
+     */
+    @NotBlank
+    @Column(length = 4000)
+    private String layout;
+
+    public Hall() {
+    }
+
+    public Hall(String name, String layout) {
+        this.name = name;
+        this.layout = layout;
+    }
+
+    // getters / setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getLayout() {
+        return layout;
+    }
+
+    public void setLayout(String layout) {
+        this.layout = layout;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.cinema.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Письмо в очереди на отправку (outbox). Пишется в той же транзакции, что и данные, о которых письмо,
+ * а отправляется в фоне. Хранится не само письмо, а что отправить (kind + payload) — письмо собирается при отправке.
+ */
+@Entity
+@Table(name = "email_outbox", // Очередь писем
+        indexes = @Index(name = "ix_email_outbox_due", columnList = "status, next_attempt_at"))
+public class OutboxEmail {
+
+    public enum Kind {
+        TICKETS,            // Билеты после покупки; payload — id билетов через запятую
+        FAVORITE_SCREENINGS // Дневная сводка новых сеансов избранных фильмов; payload — id сеансов через запятую
+    }
+
+    public enum Status {
+        PENDING, // Ждёт отправки (в том числе повторной)
+        SENT,    // Отправлено
+        DEAD     // Попытки кончились — разбирается вручную
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Kind kind;
+
+    @Column(nullable = false, length = 4000)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    private int attempts; // Сколько раз уже пытались отправить
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt; // Раньше этого времени не отправляем (время сводки или отсрочка после ошибки)
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(name = "coalesce_key", unique = true, length = 64)
+    private String coalesceKey; // Письма с одним ключом сливаются в одно (сводка пользователю за день); null — не сливаются
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+
+    public OutboxEmail() {
+    }
+
+    public OutboxEmail(String recipient, Kind kind, String payload, LocalDateTime now) {
+        this.recipient = recipient;
+        this.kind = kind;
+        this.payload = payload;
+        this.createdAt = now;
+        this.nextAttemptAt = now;
+    }
+
+    // getters / setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getCoalesceKey() {
+        return coalesceKey;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+}
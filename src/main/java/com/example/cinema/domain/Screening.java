@@ -2,7 +2,6 @@ package com.example.cinema.domain;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Future;
-import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.format.annotation.DateTimeFormat;
 
@@ -10,7 +9,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "screenings") // Таблица сеансов в базе
+@Table(name = "screenings", // Таблица сеансов в базе
+        indexes = {
+                @Index(name = "idx_screenings_start", columnList = "startTime, id") // Загрузка расписания по дням
+        })
 public class Screening {
 
     @Id
@@ -26,8 +28,10 @@ public class Screening {
     @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm") // Формат для биндинга из HTML-формы
     private LocalDateTime startTime;
 
-    @NotBlank // Название зала обязательно
-    private String hall;
+    @NotNull // Зал обязателен
+    @ManyToOne(optional = false, fetch = FetchType.EAGER) // Много сеансов в одном зале
+    @JoinColumn(name = "hall_id") // Внешний ключ на таблицу залов
+    private Hall hall;
 
     @NotNull // Цена обязательна
     private BigDecimal price;
@@ -37,7 +41,7 @@ public class Screening {
 
     public Screening(Movie movie,
                      LocalDateTime startTime,
-                     String hall,
+                     Hall hall,
                      BigDecimal price) {
         this.movie = movie;
         this.startTime = startTime;
@@ -71,11 +75,11 @@ public class Screening {
         this.startTime = startTime;
     }
 
-    public String getHall() {
+    public Hall getHall() {
         return hall;
     }
 
-    public void setHall(String hall) {
+    public void setHall(Hall hall) {
         this.hall = hall;
     }
 
@@ -3,12 +3,19 @@ package com.example.cinema.domain;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 
+import java.time.LocalDateTime;
+
 @Entity
-@Table(name = "tickets") // Таблица билетов в базе
+@Table(name = "tickets", // Таблица билетов в базе
+        uniqueConstraints = @UniqueConstraint(name = "uk_tickets_screening_seat",
+                columnNames = {"screening_id", "seat"})) // Одно место на сеансе можно продать только один раз
 public class Ticket {
 
+    public static final int ID_ALLOCATION_SIZE = 50; // Шаг последовательности tickets_seq
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Автоинкрементный первичный ключ
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tickets_seq") // id из последовательности, а не IDENTITY — так Hibernate может пачкой вставлять билеты
+    @SequenceGenerator(name = "tickets_seq", sequenceName = "tickets_seq", allocationSize = Ticket.ID_ALLOCATION_SIZE) // Один запрос к последовательности на 50 билетов
     private Long id;
 
     // много билетов к одному сеансу
@@ -34,6 +41,10 @@ public class Ticket {
     @Column(name = "qr_token", unique = true, length = 64) // Уникальное значение для идентификации билета
     private String qrToken;
 
+    // Когда билет прошёл контроль на входе (null — ещё не проходил)
+    @Column(name = "checked_in_at")
+    private LocalDateTime checkedInAt;
+
     public Ticket() {
     }
 
@@ -101,4 +112,12 @@ public class Ticket {
     public void setQrToken(String qrToken) {
         this.qrToken = qrToken;
     }
-}
\ No newline at end of file
+
+    public LocalDateTime getCheckedInAt() {
+        return checkedInAt;
+    }
+
+    public void setCheckedInAt(LocalDateTime checkedInAt) {
+        this.checkedInAt = checkedInAt;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.cinema.dto;
+
+import java.time.LocalDateTime;
+
+// Один скан на входе: token — содержимое QR, screeningId — сеанс этого входа (необязательно)
+public record CheckInScan(String token, Long screeningId, LocalDateTime scannedAt) {
+}
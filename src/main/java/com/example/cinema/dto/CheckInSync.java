@@ -0,0 +1,9 @@
+package com.example.cinema.dto;
+
+import com.example.cinema.service.CheckInService;
+
+import java.util.List;
+
+// Пачка сканов, накопленных устройством, — в порядке сканирования
+public record CheckInSync(Long screeningId, List<CheckInService.Scan> scans) {
+}
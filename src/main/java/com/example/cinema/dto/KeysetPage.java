@@ -0,0 +1,30 @@
+package com.example.cinema.dto;
+
+import java.util.List;
+
+/**
+ * Страница списка при keyset-пагинации. Следующая страница запрашивается по ключу сортировки последнего элемента
+ * ({@link #last()}): «всё, что строго после него». В отличие от OFFSET, стоимость запроса не растёт с номером страницы,
+ * и страницы не «съезжают», когда в начало списка добавляют строки.
+ */
+public record KeysetPage<T>(List<T> items, boolean hasNext) {
+
+    public static final int MAX_SIZE = 100;
+
+    // rows — результат запроса с лимитом size + 1: лишняя строка означает, что есть следующая страница
+    public static <T> KeysetPage<T> of(List<T> rows, int size) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(List.copyOf(rows), false);
+        }
+        return new KeysetPage<>(List.copyOf(rows.subList(0, size)), true);
+    }
+
+    // Размер страницы из запроса — в пределах 1..MAX_SIZE
+    public static int clampSize(int size) {
+        return Math.clamp(size, 1, MAX_SIZE);
+    }
+
+    public T last() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+}
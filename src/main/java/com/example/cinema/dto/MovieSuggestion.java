@@ -0,0 +1,5 @@
+package com.example.cinema.dto;
+
+// Подсказка поиска: фильм и число его предстоящих сеансов
+public record MovieSuggestion(long id, String title, String director, int upcoming) {
+}
@@ -0,0 +1,33 @@
+package com.example.cinema.dto;
+
+import com.example.cinema.service.HallLayout;
+import com.example.cinema.service.SeatMap;
+
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Карта мест для клиента: схема зала (строки {@link HallLayout#getRowPlans()}), версия
+ * и две битовые маски в base64 — проданные и удерживаемые места (формат — см. {@link SeatMap#encodeOccupied()}).
+ */
+public record SeatMapPayload(long screeningId,
+                             long version,
+                             int rows,
+                             int columns,
+                             List<String> layout,
+                             String occupied,
+                             String held) {
+
+    public static SeatMapPayload of(SeatMap seatMap, long version) {
+        HallLayout layout = seatMap.getLayout();
+        Base64.Encoder base64 = Base64.getEncoder();
+        return new SeatMapPayload(
+                seatMap.getScreeningId(),
+                version,
+                layout.getRows(),
+                layout.getColumns(),
+                layout.getRowPlans(),
+                base64.encodeToString(seatMap.encodeOccupied()),
+                base64.encodeToString(seatMap.encodeHeld()));
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.cinema.repo;
 
 import com.example.cinema.domain.AppUser;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,4 +20,20 @@ public interface AppUserRepository extends JpaRepository<AppUser, Long> {
 
     // Все пользователи, у которых в избранном есть фильм с таким id
     List<AppUser> findByFavoriteMovies_Id(Long movieId);
-}
\ No newline at end of file
+
+    // Страница пользователей по возрастанию id, после afterId (keyset-пагинация)
+    @Query("select u from AppUser u where u.id > :afterId order by u.id")
+    List<AppUser> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Поклонник фильма для рассылки: только id и почта, без загрузки сущности
+    interface FanRow {
+        Long getId();
+
+        String getEmail();
+    }
+
+    // Страница поклонников фильма с почтой, по возрастанию id, после afterId (keyset-пагинация)
+    @Query("select u.id as id, u.email as email from AppUser u join u.favoriteMovies m "
+            + "where m.id = :movieId and u.id > :afterId and u.email is not null and u.email <> '' order by u.id")
+    List<FanRow> findFansAfter(@Param("movieId") Long movieId, @Param("afterId") Long afterId, Pageable pageable);
+}
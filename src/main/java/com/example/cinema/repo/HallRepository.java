@@ -0,0 +1,17 @@
+package com.example.cinema.repo;
+
+import com.example.cinema.domain.Hall;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository // Репозиторий для работы с залами
+public interface HallRepository extends JpaRepository<Hall, Long> {
+
+    // Залы по алфавиту — для списков и выпадающих меню
+    List<Hall> findAllByOrderByNameAsc();
+
+    Optional<Hall> findByName(String name);
+}
@@ -1,14 +1,31 @@
 package com.example.cinema.repo;
 
 import com.example.cinema.domain.Movie;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository // Помечаем интерфейс как Spring-репозиторий (для сканирования компонентов)
 public interface MovieRepository extends JpaRepository<Movie, Long> {
+    // Поиск по каталогу — в MovieSearchIndex
 
-    // Поиск фильмов, у которых в названии есть подстрока titlePart (без учёта регистра)
-    List<Movie> findByTitleContainingIgnoreCase(String titlePart);
+    // Название и режиссёр — для автодополнения, без описаний и прочих полей
+    interface MovieLabel {
+        Long getId();
+
+        String getTitle();
+
+        String getDirector();
+    }
+
+    @Query("select m.id as id, m.title as title, m.director as director from Movie m")
+    List<MovieLabel> findAllLabels();
+
+    // Страница каталога по возрастанию id, после afterId (keyset-пагинация)
+    @Query("select m from Movie m where m.id > :afterId order by m.id")
+    List<Movie> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
\ No newline at end of file
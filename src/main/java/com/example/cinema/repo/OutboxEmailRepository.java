@@ -0,0 +1,24 @@
+package com.example.cinema.repo;
+
+import com.example.cinema.domain.OutboxEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository // Очередь писем (outbox)
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    // Письма, которые пора отправить: билеты вперёд рассылок, дальше самые давние первыми
+    @Query("select e from OutboxEmail e where e.status = com.example.cinema.domain.OutboxEmail.Status.PENDING "
+            + "and e.nextAttemptAt <= :now "
+            + "order by case when e.kind = com.example.cinema.domain.OutboxEmail.Kind.TICKETS then 0 else 1 end, "
+            + "e.nextAttemptAt")
+    List<OutboxEmail> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(OutboxEmail.Status status);
+}
@@ -1,17 +1,50 @@
 package com.example.cinema.repo;
 
 import com.example.cinema.domain.Screening;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository // Репозиторий для работы с сущностью Screening (сеансы)
 public interface ScreeningRepository extends JpaRepository<Screening, Long> {
 
-    // Этот метод должен быть для PublicController
-    // Находит все сеансы по id фильма и сортирует их по времени начала по возрастанию
-    List<Screening> findByMovie_IdOrderByStartTimeAsc(Long movieId);
+    // Расписание в памяти (ScheduleMaterializer): все сеансы с from и сеансы одного дня [from, to), с фильмом и залом
+    @Query("select s from Screening s join fetch s.movie join fetch s.hall where s.startTime >= :from")
+    List<Screening> findStartingFrom(@Param("from") LocalDateTime from);
+
+    @Query("select s from Screening s join fetch s.movie join fetch s.hall "
+            + "where s.startTime >= :from and s.startTime < :to")
+    List<Screening> findStartingBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Id сеансов в зале — чтобы сбросить их карты мест после изменения схемы зала
+    @Query("select s.id from Screening s where s.hall.id = :hallId")
+    List<Long> findIdsByHallId(@Param("hallId") Long hallId);
+
+    boolean existsByHall_Id(Long hallId);
+
+    // Сеансы, которые начинаются в заданном промежутке (контроль на входе загружает их билеты заранее)
+    List<Screening> findByStartTimeBetween(LocalDateTime from, LocalDateTime to);
+
+    // Число предстоящих сеансов фильма
+    interface UpcomingCount {
+        Long getMovieId();
+
+        long getScreenings();
+    }
+
+    // Сколько у каждого фильма сеансов после from (фильмы без сеансов не попадают)
+    @Query("select s.movie.id as movieId, count(s) as screenings from Screening s "
+            + "where s.startTime > :from group by s.movie.id")
+    List<UpcomingCount> countUpcomingByMovie(@Param("from") LocalDateTime from);
+
+    // Страница сеансов по возрастанию id, после afterId (keyset-пагинация); фильм и зал — тем же запросом
+    @Query("select s from Screening s join fetch s.movie join fetch s.hall where s.id > :afterId order by s.id")
+    List<Screening> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
 
     // Удалить все сеансы указанного фильма
     void deleteByMovie_Id(Long movieId);
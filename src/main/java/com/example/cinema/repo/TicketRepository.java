@@ -1,26 +1,72 @@
 package com.example.cinema.repo;
 
 import com.example.cinema.domain.Ticket;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository // Репозиторий для работы с сущностью Ticket (билеты)
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
 
-    List<Ticket> findByUser_Username(String username); // Все билеты, принадлежащие пользователю с данным логином
+    // Билеты пользователя по времени сеанса — строго после билета (afterTime, afterId): ближайшие сеансы в профиле
+    @Query("select t from Ticket t join fetch t.screening s join fetch s.movie join fetch s.hall "
+            + "where t.user.username = :username "
+            + "and (s.startTime > :afterTime or (s.startTime = :afterTime and t.id > :afterId)) "
+            + "order by s.startTime, t.id")
+    List<Ticket> findUserPageAfter(@Param("username") String username,
+                                   @Param("afterTime") LocalDateTime afterTime,
+                                   @Param("afterId") Long afterId,
+                                   Pageable pageable);
+
+    // То же в обратную сторону — строго до билета (beforeTime, beforeId), от новых к старым: история в профиле
+    @Query("select t from Ticket t join fetch t.screening s join fetch s.movie join fetch s.hall "
+            + "where t.user.username = :username "
+            + "and (s.startTime < :beforeTime or (s.startTime = :beforeTime and t.id < :beforeId)) "
+            + "order by s.startTime desc, t.id desc")
+    List<Ticket> findUserPageBefore(@Param("username") String username,
+                                    @Param("beforeTime") LocalDateTime beforeTime,
+                                    @Param("beforeId") Long beforeId,
+                                    Pageable pageable);
 
     List<Ticket> findByScreening_Id(Long screeningId); // Все билеты для конкретного сеанса
 
+    @Query("select t.seat from Ticket t where t.screening.id = :screeningId")
+    List<String> findSeatsByScreeningId(@Param("screeningId") Long screeningId); // Только метки занятых мест сеанса
+
+    // Все проданные места в зале — новая схема зала не должна их потерять
+    @Query("select distinct t.seat from Ticket t where t.screening.hall.id = :hallId")
+    List<String> findSeatsByHallId(@Param("hallId") Long hallId);
+
     void deleteByUser_Id(Long userId); // Удалить все билеты пользователя (используется при удалении юзера админом)
 
-    boolean existsByScreening_IdAndSeat(Long screeningId, String seat); // Проверить, занято ли конкретное место на сеансе
+    // Какие из перечисленных мест сеанса уже проданы — один запрос на всю корзину
+    @Query("select t.seat from Ticket t where t.screening.id = :screeningId and t.seat in :seats")
+    List<String> findTakenSeats(@Param("screeningId") Long screeningId, @Param("seats") Collection<String> seats);
 
-    // Поиск по токену QR (если понадобится)
+    // Поиск по токену QR — контроль на входе, если билета нет в памяти
     Ticket findByQrToken(String qrToken); // Найти билет по его уникальному QR-токену
 
+    // Всё, что нужно контролю на входе, без загрузки сущностей
+    interface CheckInRow {
+        Long getId();
+
+        String getQrToken();
+
+        String getSeat();
+
+        LocalDateTime getCheckedInAt();
+    }
+
+    @Query("select t.id as id, t.qrToken as qrToken, t.seat as seat, t.checkedInAt as checkedInAt "
+            + "from Ticket t where t.screening.id = :screeningId and t.qrToken is not null")
+    List<CheckInRow> findCheckInRows(@Param("screeningId") Long screeningId);
+
     // Билеты гостя по e-mail, только будущие, по времени
     List<Ticket> findByEmailAndScreening_StartTimeAfterOrderByScreening_StartTimeAsc(
             String email,
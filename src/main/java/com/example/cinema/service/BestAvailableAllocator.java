@@ -0,0 +1,84 @@
+package com.example.cinema.service;
+
+/**
+ * Подбор N свободных мест подряд в одном ряду («лучшие места рядом»).
+ * Работает прямо со словами карты мест: свободные позиции ряда — одно long,
+ * начала подходящих блоков находятся за log2(N) сдвигов и AND.
+ * Из всех блоков выбирается ближайший к центру зала (по ряду и по позиции в ряду).
+ * Вызывается под блокировкой сеанса, поэтому найденные места можно сразу удерживать.
+ */
+final class BestAvailableAllocator {
+
+    private BestAvailableAllocator() {
+    }
+
+    // Индексы мест лучшего блока (слева направо) или null, если N мест подряд нигде нет
+    static int[] allocate(SeatMap seatMap, int count) {
+        HallLayout layout = seatMap.getLayout();
+        int rows = layout.getRows();
+        int columns = layout.getColumns();
+        if (count < 1 || count > columns) {
+            return null;
+        }
+
+        int bestRow = -1;
+        int bestStart = -1;
+        long bestScore = Long.MAX_VALUE;
+        for (int row = 1; row <= rows; row++) {
+            // Места для колясок не предлагаем — их выбирают вручную
+            long free = layout.getSeatMask(row) & ~layout.getWheelchairMask(row) & ~seatMap.unavailableMask(row);
+            long starts = blockStarts(free, count);
+            if (starts == 0) {
+                continue;
+            }
+            int start = closestTo(starts, (columns - count) / 2, count, columns);
+
+            // Расстояния в удвоенных единицах (центр может приходиться на середину между местами),
+            // каждое нормировано на размер зала перекрёстным умножением
+            long rowDistance = Math.abs(2L * row - (rows + 1));
+            long columnDistance = Math.abs(2L * start + count - columns);
+            long score = rowDistance * columns + columnDistance * rows;
+            if (score < bestScore) {
+                bestScore = score;
+                bestRow = row;
+                bestStart = start;
+            }
+        }
+        if (bestRow < 0) {
+            return null;
+        }
+
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = layout.indexAt(bestRow, bestStart + i);
+        }
+        return indexes;
+    }
+
+    // Бит i результата установлен, если свободны все позиции i..i+count-1
+    static long blockStarts(long free, int count) {
+        long starts = free;
+        int length = 1;
+        while (length < count && starts != 0) {
+            int shift = Math.min(length, count - length);
+            starts &= starts >>> shift;
+            length += shift;
+        }
+        return starts;
+    }
+
+    // Начало блока, ближайшее к target: ближайший бит не правее и ближайший не левее
+    static int closestTo(long starts, int target, int count, int columns) {
+        long atOrBelow = starts & (target >= 63 ? -1L : (2L << target) - 1);
+        long atOrAbove = starts & (-1L << target);
+        int below = atOrBelow != 0 ? 63 - Long.numberOfLeadingZeros(atOrBelow) : -1;
+        int above = atOrAbove != 0 ? Long.numberOfTrailingZeros(atOrAbove) : -1;
+        if (below < 0) {
+            return above;
+        }
+        if (above < 0) {
+            return below;
+        }
+        return Math.abs(2L * below + count - columns) <= Math.abs(2L * above + count - columns) ? below : above;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.dto.KeysetPage;
+import com.example.cinema.repo.MovieRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Каталог фильмов для публичных страниц и форм админки: фильмы меняются несколько раз в день, а читаются на каждый запрос.
+ * Списки кэшируются постранично (keyset-страницы, см. {@link KeysetPage}), так что объём кэша не зависит от размера таблиц.
+ * Сеансы — в {@link ScheduleMaterializer}; записи сеансов ({@link ScreeningView}) общие.
+ * <p>
+ * В кэше — неизменяемые снимки (записи и неизменяемые списки), а не сущности JPA: один снимок отдаётся всем потокам
+ * запросов, и шаблон не может ни изменить его, ни потянуть ленивую связь. Записи живут не дольше app.catalog.cache.ttl,
+ * число записей ограничено app.catalog.cache.max-entries (LRU). Админка сбрасывает кэш сразу после изменений
+ * ({@link #invalidateMovies()}); внутри транзакции — ещё раз после коммита,
+ * чтобы параллельный запрос не закэшировал данные до коммита.
+ * <p>
+ * Метрики: catalog.cache.gets{result=hit|miss}, catalog.cache.hit.ratio, catalog.cache.evictions{cause=size|expired},
+ * catalog.cache.invalidations, catalog.cache.size.
+ */
+@Component
+public class CatalogCache {
+
+    private static final String MOVIES = "movies";
+    private static final String MOVIE = "movie:";
+
+    public record MovieView(Long id, String title, String genre, String description, Integer durationMinutes,
+                            String director, String country, String posterUrl) {
+
+        static MovieView of(Movie movie) {
+            return new MovieView(movie.getId(), movie.getTitle(), movie.getGenre(), movie.getDescription(),
+                    movie.getDurationMinutes(), movie.getDirector(), movie.getCountry(), movie.getPosterUrl());
+        }
+    }
+
+    public record HallView(Long id, String name) {
+    }
+
+    public record ScreeningView(Long id, MovieView movie, LocalDateTime startTime, HallView hall, BigDecimal price) {
+
+        static ScreeningView of(Screening screening, MovieView movie) {
+            return new ScreeningView(screening.getId(), movie, screening.getStartTime(),
+                    new HallView(screening.getHall().getId(), screening.getHall().getName()), screening.getPrice());
+        }
+    }
+
+    private record Entry(Object value, long loadedAt) {
+    }
+
+    private final MovieRepository movieRepository;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Lock lock = new ReentrantLock(); // Не synchronized: не «прибиваем» виртуальные потоки
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Порядок доступа — LRU
+    private final AtomicLong version = new AtomicLong(); // Растёт при каждом сбросе
+    private volatile int size;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter invalidations;
+
+    public CatalogCache(MovieRepository movieRepository,
+                        @Value("${app.catalog.cache.ttl:PT5M}") Duration ttl,
+                        @Value("${app.catalog.cache.max-entries:256}") int maxEntries,
+                        MeterRegistry registry) {
+        this.movieRepository = movieRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("catalog.cache.gets").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("catalog.cache.gets").tag("result", "miss").register(registry);
+        this.sizeEvictions = Counter.builder("catalog.cache.evictions").tag("cause", "size").register(registry);
+        this.expiredEvictions = Counter.builder("catalog.cache.evictions").tag("cause", "expired").register(registry);
+        this.invalidations = Counter.builder("catalog.cache.invalidations").register(registry);
+        Gauge.builder("catalog.cache.size", this, cache -> cache.size).register(registry);
+        Gauge.builder("catalog.cache.hit.ratio", this, CatalogCache::hitRatio).register(registry);
+    }
+
+    // Все фильмы — для выбора фильма в форме сеанса
+    public List<MovieView> movies() {
+        return get(MOVIES, () -> movieRepository.findAll().stream()
+                .sorted(Comparator.comparing(Movie::getId))
+                .map(MovieView::of)
+                .toList());
+    }
+
+    // Страница каталога после фильма afterId
+    public KeysetPage<MovieView> moviesPage(long afterId, int size) {
+        return get(MOVIES + ":" + afterId + ":" + size, () -> KeysetPage.of(
+                movieRepository.findPageAfter(afterId, PageRequest.of(0, size + 1)).stream().map(MovieView::of).toList(),
+                size));
+    }
+
+    public Optional<MovieView> movie(Long id) {
+        return get(MOVIE + id, () -> movieRepository.findById(id).map(MovieView::of));
+    }
+
+    // Фильмы в порядке ids (результат поиска, не больше app.search.max-results); удалённые пропускаются. Не кэшируется
+    public List<MovieView> movies(List<Long> ids) {
+        Map<Long, MovieView> found = movieRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Movie::getId, MovieView::of));
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    // Фильм добавлен, изменён или удалён
+    public void invalidateMovies() {
+        invalidate();
+    }
+
+    // Номер версии каталога: меняется при каждом сбросе
+    public long version() {
+        return version.get();
+    }
+
+    // Снимок из кэша; при промахе читается из базы вне блокировки
+    @SuppressWarnings("unchecked")
+    private <T> T get(String key, Supplier<T> loader) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.loadedAt() < ttlNanos) {
+                    hits.increment();
+                    return (T) entry.value();
+                }
+                entries.remove(key);
+                expiredEvictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        long loadedVersion = version.get();
+        T value = loader.get();
+
+        lock.lock();
+        try {
+            // Пока читали, каталог сбросили — прочитанное могло устареть, отдаём его только этому запросу
+            if (version.get() == loadedVersion) {
+                entries.put(key, new Entry(value, now));
+                Iterator<String> eldest = entries.keySet().iterator();
+                while (entries.size() > maxEntries && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                    sizeEvictions.increment();
+                }
+                size = entries.size();
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void invalidate() {
+        evict();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict();
+                }
+            });
+        }
+    }
+
+    private void evict() {
+        lock.lock();
+        try {
+            version.incrementAndGet();
+            entries.clear();
+            size = entries.size();
+            invalidations.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.cinema.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ETag для страниц каталога (/movies, /movies/{id}, /screenings) из счётчиков, которые уже есть в памяти:
+ * версии каталога ({@link CatalogCache#version()}), версии расписания ({@link ScheduleMaterializer#version()})
+ * и версии избранного пользователя. Считаются без запросов к базе, так что совпавший If-None-Match
+ * отвечается 304 до репозиториев и шаблона.
+ * <p>
+ * Версии читаются до данных страницы: данные могут оказаться только новее ETag, но не старее.
+ * ETag слабый — в HTML каждый раз другой маскированный CSRF-токен. Для вошедшего пользователя в него входят
+ * логин, роли и сессия: от них зависят меню и CSRF-токен в формах.
+ * Счётчики живут в памяти, поэтому в ETag есть и метка запуска — после рестарта старые ETag не совпадут.
+ */
+@Component
+public class CatalogEtags {
+
+    private final CatalogCache catalog;
+    private final ScheduleMaterializer schedule;
+    private final String boot = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, Long> favorites = new ConcurrentHashMap<>(); // Логин -> версия избранного
+
+    public CatalogEtags(CatalogCache catalog, ScheduleMaterializer schedule) {
+        this.catalog = catalog;
+        this.schedule = schedule;
+    }
+
+    // Каталог: фильмы и избранное
+    public String movies(HttpServletRequest request) {
+        return etag("m", catalog.version() + "", request);
+    }
+
+    // Страница фильма: фильм, расписание, избранное. Пока ближайший сеанс не начался, прошедших сеансов не прибавится
+    public String movie(Long movieId, HttpServletRequest request) {
+        long scheduleVersion = schedule.version();
+        LocalDateTime next = schedule.nextStart(movieId, LocalDateTime.now());
+        return etag("d", catalog.version() + "." + scheduleVersion + "." + (next != null ? next : "-"), request);
+    }
+
+    // Расписание: по умолчанию начинается с сегодняшнего дня
+    public String screenings(HttpServletRequest request) {
+        return etag("s", schedule.version() + "." + LocalDate.now(), request);
+    }
+
+    // Пользователь добавил или убрал фильм из избранного
+    public void favoritesChanged(String username) {
+        favorites.merge(username, 1L, Long::sum);
+    }
+
+    private String etag(String page, String versions, HttpServletRequest request) {
+        return "W/\"" + page + "-" + boot + "-" + versions + "-" + viewer(request) + "\"";
+    }
+
+    private String viewer(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal == null) {
+            return "a"; // Аноним
+        }
+        Object roles = principal instanceof Authentication authentication
+                ? authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).sorted().toList()
+                : null;
+        HttpSession session = request.getSession(false);
+        int hash = Objects.hash(principal.getName(), roles, session != null ? session.getId() : null);
+        return Integer.toHexString(hash) + "." + favorites.getOrDefault(principal.getName(), 0L);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.cinema.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ответ сканеру на входе. Для UNKNOWN заполнен только status;
+ * для ALREADY_USED checkedInAt — время первого прохода.
+ */
+public record CheckInResult(Status status,
+                            Long ticketId,
+                            Long screeningId,
+                            String seat,
+                            String movieTitle,
+                            String hall,
+                            LocalDateTime startTime,
+                            LocalDateTime checkedInAt) {
+
+    public enum Status {
+        ADMITTED,        // Проход разрешён, билет отмечен
+        ALREADY_USED,    // Билет уже прошёл контроль
+        WRONG_SCREENING, // Билет на другой сеанс
+        NOT_TODAY,       // Сеанс ещё не скоро или давно закончился
+        UNKNOWN          // Такого билета нет
+    }
+
+    // Отказ по подписанному токену, без обращения к базе — известны только id билета и сеанса
+    static CheckInResult of(Status status, long ticketId, long screeningId) {
+        return new CheckInResult(status, ticketId, screeningId, null, null, null, null, null);
+    }
+
+    static CheckInResult unknown() {
+        return new CheckInResult(Status.UNKNOWN, null, null, null, null, null, null, null);
+    }
+}
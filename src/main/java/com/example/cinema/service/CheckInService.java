@@ -0,0 +1,325 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Screening;
+import com.example.cinema.domain.Ticket;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.repo.TicketRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Контроль билетов на входе.
+ * Билеты ближайших сеансов заранее загружаются в память (токен -> билет), поэтому проверка при сканировании —
+ * поиск в хэш-таблице и CAS, без обращения к базе. Повторный проход того же билета отсекается тем же CAS.
+ * Отметки о проходе пишутся в tickets.checked_in_at в фоне пачками.
+ * Билет, которого нет в памяти (куплен после загрузки), ищется в базе по токену — но только если подпись токена
+ * верна ({@link TicketTokenSigner}): поддельные токены до базы не доходят.
+ */
+@Service
+public class CheckInService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckInService.class);
+
+    private static final String QR_PREFIX = "TICKET:"; // Так токен зашит в QR-код билета
+
+    private final TicketRepository ticketRepository;
+    private final ScreeningRepository screeningRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ScreeningLockStripes lockStripes;
+    private final QrCodeService qrCodeService; // Проверка подписи токенов
+    private final Duration preloadAhead;    // За сколько до начала сеанса загружаем его билеты
+    private final Duration admitAfterStart; // Сколько после начала ещё пускаем в зал
+    private final int batchSize;
+
+    private final ConcurrentMap<String, Pass> passes = new ConcurrentHashMap<>(); // токен -> билет
+    private final ConcurrentMap<Long, Door> doors = new ConcurrentHashMap<>();    // screeningId -> загруженный сеанс
+    private final BlockingQueue<Pass> pending = new LinkedBlockingQueue<>();      // Проходы, ещё не записанные в базу
+    private final Lock flushLock = new ReentrantLock();
+
+    public CheckInService(TicketRepository ticketRepository,
+                          ScreeningRepository screeningRepository,
+                          JdbcTemplate jdbcTemplate,
+                          ScreeningLockStripes lockStripes,
+                          QrCodeService qrCodeService,
+                          @Value("${app.checkin.preload-ahead:PT12H}") Duration preloadAhead,
+                          @Value("${app.checkin.admit-after-start:PT3H}") Duration admitAfterStart,
+                          @Value("${app.checkin.batch-size:500}") int batchSize) {
+        this.ticketRepository = ticketRepository;
+        this.screeningRepository = screeningRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.lockStripes = lockStripes;
+        this.qrCodeService = qrCodeService;
+        this.preloadAhead = preloadAhead;
+        this.admitAfterStart = admitAfterStart;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Проверка одного скана. scanned — токен или содержимое QR целиком ("TICKET:..."),
+     * screeningId — сеанс, на который пускает этот вход (null — любой), scannedAt — время скана на устройстве.
+     */
+    public CheckInResult scan(String scanned, Long screeningId, LocalDateTime scannedAt) {
+        String token = tokenOf(scanned);
+        if (token.isEmpty()) {
+            return CheckInResult.unknown();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime at = scannedAt == null || scannedAt.isAfter(now) ? now : scannedAt;
+
+        Pass pass = passes.get(token);
+        if (pass == null) {
+            // Подписанный токен сначала проверяем без базы: подделка, просроченный билет и чужой сеанс отсекаются сразу
+            if (!isLegacyToken(token)) {
+                TicketTokenSigner.Claims claims = qrCodeService.verifyTicketToken(token).orElse(null);
+                if (claims == null) {
+                    return CheckInResult.unknown();
+                }
+                if (screeningId != null && screeningId != claims.screeningId()) {
+                    return CheckInResult.of(CheckInResult.Status.WRONG_SCREENING, claims.ticketId(), claims.screeningId());
+                }
+                if (at.atZone(ZoneId.systemDefault()).toInstant().isAfter(claims.expiresAt())) {
+                    return CheckInResult.of(CheckInResult.Status.NOT_TODAY, claims.ticketId(), claims.screeningId());
+                }
+            }
+            pass = lookup(token); // Билет мог быть отменён — это знает только база
+            if (pass == null) {
+                return CheckInResult.unknown();
+            }
+        }
+
+        Door door = pass.door;
+        if (screeningId != null && !screeningId.equals(door.screeningId)) {
+            return result(CheckInResult.Status.WRONG_SCREENING, pass, pass.checkedInAt.get());
+        }
+        if (!door.admits(at)) {
+            return result(CheckInResult.Status.NOT_TODAY, pass, pass.checkedInAt.get());
+        }
+        if (!pass.checkedInAt.compareAndSet(null, at)) {
+            return result(CheckInResult.Status.ALREADY_USED, pass, pass.checkedInAt.get());
+        }
+        pending.add(pass);
+        return result(CheckInResult.Status.ADMITTED, pass, at);
+    }
+
+    // Пачка сканов с устройства (например, накопленных без сети) — в порядке сканирования
+    public List<CheckInResult> sync(List<Scan> scans, Long screeningId) {
+        List<CheckInResult> results = new ArrayList<>(scans.size());
+        for (Scan scan : scans) {
+            results.add(scan(scan.token(), screeningId, scan.scannedAt()));
+        }
+        return results;
+    }
+
+    public record Scan(String token, LocalDateTime scannedAt) {
+    }
+
+    // Раз в минуту загружаем билеты сеансов, к которым скоро откроются двери, и убираем прошедшие
+    @Scheduled(fixedDelay = 60_000)
+    public void preload() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Screening screening : screeningRepository.findByStartTimeBetween(now.minus(admitAfterStart), now.plus(preloadAhead))) {
+            if (!doors.containsKey(screening.getId())) {
+                load(screening);
+            }
+        }
+        doors.values().removeIf(door -> {
+            if (door.startTime.plus(admitAfterStart).isBefore(now)) {
+                door.seats.values().forEach(pass -> passes.remove(pass.token, pass));
+                return true;
+            }
+            return false;
+        });
+    }
+
+    // Билет удалён (отменён покупателем) — его токен больше не пускает
+    public void ticketDeleted(Long screeningId, String seat) {
+        Door door = doors.get(screeningId);
+        if (door != null) {
+            Pass pass = door.seats.remove(seat);
+            if (pass != null) {
+                passes.remove(pass.token, pass);
+            }
+        }
+    }
+
+    // Сеанс изменён или удалён — при следующем скане его билеты перечитаются из базы
+    public void screeningChanged(Long screeningId) {
+        writePending(true); // Сначала отметки в базу: перечитанные билеты не должны «забыть» проход
+        Door door = doors.remove(screeningId);
+        if (door != null) {
+            door.seats.values().forEach(pass -> passes.remove(pass.token, pass));
+        }
+    }
+
+    // Билеты удалены сразу на многих сеансах (удалён пользователь или фильм)
+    public void ticketsDeleted() {
+        new ArrayList<>(doors.keySet()).forEach(this::screeningChanged);
+    }
+
+    // Отметки о проходе — в базу пачками. Ошибка записи — отметки остаются в очереди до следующей попытки
+    @Scheduled(fixedDelay = 1_000)
+    public void flush() {
+        writePending(false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writePending(true);
+    }
+
+    // wait — дождаться записи, которую сейчас ведёт другой поток, и дописать остаток
+    private void writePending(boolean wait) {
+        if (wait) {
+            flushLock.lock();
+        } else if (!flushLock.tryLock()) {
+            return; // Уже пишет другой поток
+        }
+        try {
+            List<Pass> batch = new ArrayList<>(batchSize);
+            while (pending.drainTo(batch, batchSize) > 0) {
+                try {
+                    // checked_in_at is null: отметку, уже записанную в базу, не перетираем
+                    jdbcTemplate.batchUpdate("update tickets set checked_in_at = ? where id = ? and checked_in_at is null",
+                            batch, batch.size(), (ps, pass) -> {
+                                ps.setTimestamp(1, Timestamp.valueOf(pass.checkedInAt.get()));
+                                ps.setLong(2, pass.ticketId);
+                            });
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to write {} check-ins, will retry", batch.size(), e);
+                    pending.addAll(batch);
+                    return;
+                }
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private Pass lookup(String token) {
+        Ticket ticket = ticketRepository.findByQrToken(token);
+        if (ticket == null) {
+            return null;
+        }
+        Screening screening = ticket.getScreening();
+        LocalDateTime now = LocalDateTime.now();
+        Door door = doors.get(screening.getId());
+        if (door == null) {
+            if (screening.getStartTime().isAfter(now.plus(preloadAhead))
+                    || screening.getStartTime().plus(admitAfterStart).isBefore(now)) {
+                // Сеанс не сегодня — в память не загружаем, просто показываем билет
+                return new Pass(ticket.getId(), token, ticket.getSeat(), new Door(screening), ticket.getCheckedInAt());
+            }
+            door = load(screening);
+        }
+        return door.register(ticket.getId(), token, ticket.getSeat(), ticket.getCheckedInAt());
+    }
+
+    private Door load(Screening screening) {
+        Lock lock = lockStripes.lockFor(screening.getId());
+        lock.lock();
+        try {
+            Door door = doors.get(screening.getId());
+            if (door != null) {
+                return door; // Пока ждали блокировку, сеанс загрузил другой поток
+            }
+            door = new Door(screening);
+            List<TicketRepository.CheckInRow> rows = ticketRepository.findCheckInRows(screening.getId());
+            for (TicketRepository.CheckInRow row : rows) {
+                door.register(row.getId(), row.getQrToken(), row.getSeat(), row.getCheckedInAt());
+            }
+            doors.put(screening.getId(), door);
+            logger.info("Check-in: loaded {} tickets of screening {}", rows.size(), screening.getId());
+            return door;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Билеты, выданные до подписанных токенов, несут UUID — их проверяет только база
+    private static boolean isLegacyToken(String token) {
+        return token.length() == 36 && token.charAt(8) == '-' && token.charAt(13) == '-'
+                && token.charAt(18) == '-' && token.charAt(23) == '-';
+    }
+
+    private static String tokenOf(String scanned) {
+        if (scanned == null) {
+            return "";
+        }
+        String token = scanned.strip();
+        return token.startsWith(QR_PREFIX) ? token.substring(QR_PREFIX.length()) : token;
+    }
+
+    private static CheckInResult result(CheckInResult.Status status, Pass pass, LocalDateTime checkedInAt) {
+        Door door = pass.door;
+        return new CheckInResult(status, pass.ticketId, door.screeningId, pass.seat,
+                door.movieTitle, door.hall, door.startTime, checkedInAt);
+    }
+
+    // Сеанс, билеты которого загружены в память
+    private final class Door {
+
+        final Long screeningId;
+        final LocalDateTime startTime;
+        final String movieTitle;
+        final String hall;
+        final ConcurrentMap<String, Pass> seats = new ConcurrentHashMap<>(); // место -> билет
+
+        Door(Screening screening) {
+            this.screeningId = screening.getId();
+            this.startTime = screening.getStartTime();
+            this.movieTitle = screening.getMovie().getTitle();
+            this.hall = screening.getHall().getName();
+        }
+
+        boolean admits(LocalDateTime at) {
+            return !at.isBefore(startTime.minus(preloadAhead)) && !at.isAfter(startTime.plus(admitAfterStart));
+        }
+
+        Pass register(Long ticketId, String token, String seat, LocalDateTime checkedInAt) {
+            Pass pass = new Pass(ticketId, token, seat, this, checkedInAt);
+            Pass existing = passes.putIfAbsent(token, pass);
+            if (existing != null) {
+                return existing; // Уже в памяти — вместе с отметкой о проходе, которая может быть ещё не записана
+            }
+            seats.put(seat, pass);
+            return pass;
+        }
+    }
+
+    private static final class Pass {
+
+        final Long ticketId;
+        final String token;
+        final String seat;
+        final Door door;
+        final AtomicReference<LocalDateTime> checkedInAt; // null — ещё не проходил
+
+        Pass(Long ticketId, String token, String seat, Door door, LocalDateTime checkedInAt) {
+            this.ticketId = ticketId;
+            this.token = token;
+            this.seat = seat;
+            this.door = door;
+            this.checkedInAt = new AtomicReference<>(checkedInAt);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.OutboxEmail;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.domain.Ticket;
+import com.example.cinema.repo.OutboxEmailRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.repo.TicketRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Очередь писем (outbox): письмо ставится в таблицу email_outbox в транзакции покупки,
+ * а отправляют его фоновые обработчики. Каждый обработчик отправляет свою пачку за одно SMTP-соединение.
+ * Ошибка — повтор с экспоненциальной отсрочкой; после app.mail.outbox.max-attempts попыток письмо становится DEAD.
+ * Доставка «хотя бы один раз»: если приложение упадёт посреди отправки, пачка уйдёт повторно.
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    private final OutboxEmailRepository outboxRepository;
+    private final TicketRepository ticketRepository;
+    private final ScreeningRepository screeningRepository;
+    private final EmailService emailService;
+    private final QrCodeService qrCodeService;
+    private final int workers;
+    private final int batchSize;     // Писем за одно SMTP-соединение
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final long nanosPerMessage; // Ограничение скорости отправки; 0 — без ограничения
+    private final AtomicLong nextSendNanos = new AtomicLong(System.nanoTime()); // Когда освободится следующий слот
+    private final ExecutorService pool;
+
+    public EmailOutboxService(OutboxEmailRepository outboxRepository,
+                              TicketRepository ticketRepository,
+                              ScreeningRepository screeningRepository,
+                              EmailService emailService,
+                              QrCodeService qrCodeService,
+                              @Value("${app.mail.outbox.workers:2}") int workers,
+                              @Value("${app.mail.outbox.batch-size:20}") int batchSize,
+                              @Value("${app.mail.outbox.max-attempts:8}") int maxAttempts,
+                              @Value("${app.mail.outbox.initial-backoff:PT30S}") Duration initialBackoff,
+                              @Value("${app.mail.outbox.max-backoff:PT1H}") Duration maxBackoff,
+                              @Value("${app.mail.outbox.max-per-second:0}") int maxPerSecond) {
+        this.outboxRepository = outboxRepository;
+        this.ticketRepository = ticketRepository;
+        this.screeningRepository = screeningRepository;
+        this.emailService = emailService;
+        this.qrCodeService = qrCodeService;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.nanosPerMessage = maxPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxPerSecond : 0;
+        // Число обработчиков = число одновременных соединений с SMTP-сервером
+        this.pool = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("mail-outbox-"));
+    }
+
+    // Письмо с билетами; вызывается внутри транзакции, которая сохраняет билеты
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueTickets(String email, List<Ticket> tickets) {
+        if (email == null || email.isBlank() || tickets.isEmpty()) {
+            return;
+        }
+        String ids = tickets.stream().map(t -> t.getId().toString()).collect(Collectors.joining(","));
+        outboxRepository.save(new OutboxEmail(email.strip(), OutboxEmail.Kind.TICKETS, ids, LocalDateTime.now()));
+    }
+
+    /**
+     * Разбирает очередь: берёт письма, которые пора отправить, делит на пачки и отдаёт обработчикам.
+     * Следующий проход начинается, только когда отправлены все пачки, поэтому письмо не попадёт к двум обработчикам.
+     * Если пачка упала (например, не записался статус), дальше в этот раз не идём: письма остались бы PENDING
+     * и сразу ушли бы повторно — остаток очереди ждёт следующего опроса.
+     */
+    @Scheduled(initialDelayString = "${app.mail.outbox.poll-interval:PT2S}",
+            fixedDelayString = "${app.mail.outbox.poll-interval:PT2S}")
+    public void drain() {
+        int limit = workers * batchSize;
+        List<OutboxEmail> due;
+        do {
+            due = outboxRepository.findDue(LocalDateTime.now(), PageRequest.of(0, limit));
+            List<Callable<Void>> batches = new ArrayList<>();
+            for (int from = 0; from < due.size(); from += batchSize) {
+                List<OutboxEmail> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+                batches.add(() -> {
+                    sendBatch(batch);
+                    return null;
+                });
+            }
+            boolean failed = false;
+            try {
+                for (Future<Void> result : pool.invokeAll(batches)) {
+                    try {
+                        result.get();
+                    } catch (ExecutionException e) {
+                        failed = true;
+                        logger.error("Outbox batch failed, the rest of the queue waits for the next poll", e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (failed) {
+                return;
+            }
+        } while (due.size() == limit); // Очередь длиннее одного прохода — продолжаем сразу
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private void sendBatch(List<OutboxEmail> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<MimeMessage, OutboxEmail> messages = new IdentityHashMap<>();
+        List<MimeMessage> ordered = new ArrayList<>(batch.size());
+        Map<String, List<Screening>> screenings = new HashMap<>(); // Сводки в пачке часто об одних и тех же сеансах
+        for (OutboxEmail email : batch) {
+            try {
+                MimeMessage message = build(email, screenings);
+                if (message == null) {
+                    email.setStatus(OutboxEmail.Status.SENT); // Отправлять нечего (билеты отменены, сеансы прошли)
+                    email.setLastError("Содержимое письма устарело до отправки");
+                    email.setSentAt(now);
+                    continue;
+                }
+                messages.put(message, email);
+                ordered.add(message);
+            } catch (Exception e) {
+                failed(email, e, now);
+            }
+        }
+
+        if (!throttle(ordered.size())) {
+            return; // Остановка приложения: письма останутся PENDING и уйдут после запуска
+        }
+        Map<MimeMessage, Exception> failures = emailService.sendInOneSession(ordered);
+        for (MimeMessage message : ordered) {
+            OutboxEmail email = messages.get(message);
+            Exception failure = failures.get(message);
+            if (failure == null) {
+                email.setStatus(OutboxEmail.Status.SENT);
+                email.setAttempts(email.getAttempts() + 1);
+                email.setSentAt(now);
+                email.setLastError(null);
+            } else {
+                failed(email, failure, now);
+            }
+        }
+        save(batch);
+    }
+
+    // Статусы пачки одним сохранением; не вышло — по одному, чтобы уже отправленные письма не ушли повторно
+    private void save(List<OutboxEmail> batch) {
+        try {
+            outboxRepository.saveAll(batch);
+            return;
+        } catch (RuntimeException e) {
+            logger.warn("Saving outbox batch failed, saving {} emails one by one: {}", batch.size(), e.getMessage());
+        }
+        RuntimeException failure = null;
+        for (OutboxEmail email : batch) {
+            try {
+                outboxRepository.save(email);
+            } catch (RuntimeException e) {
+                logger.error("Status {} of email {} to {} is not saved, it will be sent again",
+                        email.getStatus(), email.getId(), email.getRecipient(), e);
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure; // drain() остановит проход
+        }
+    }
+
+    /**
+     * Общий на все обработчики лимит app.mail.outbox.max-per-second: пачка занимает слоты подряд
+     * и ждёт, пока наступит первый из них. Сводки к digest-time не уходят на SMTP-сервер лавиной.
+     */
+    private boolean throttle(int messages) {
+        if (nanosPerMessage == 0 || messages == 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long start = nextSendNanos.getAndAccumulate(messages * nanosPerMessage,
+                (next, cost) -> Math.max(next, now) + cost);
+        long waitNanos = start - now;
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MimeMessage build(OutboxEmail email, Map<String, List<Screening>> screeningCache) throws Exception {
+        return switch (email.getKind()) {
+            case TICKETS -> {
+                List<Long> ids = Arrays.stream(email.getPayload().split(",")).map(Long::valueOf).toList();
+                List<Ticket> tickets = new ArrayList<>(ticketRepository.findAllById(ids));
+                if (tickets.isEmpty()) {
+                    yield null;
+                }
+                tickets.sort(Comparator.comparing(Ticket::getId));
+                List<byte[]> images = qrCodeService.generateQrBytes(
+                        tickets.stream().map(t -> "TICKET:" + t.getQrToken()).toList(), 220, 220);
+                Map<Long, byte[]> qrCodes = new HashMap<>();
+                for (int i = 0; i < tickets.size(); i++) {
+                    qrCodes.put(tickets.get(i).getId(), images.get(i));
+                }
+                yield emailService.buildTicketsEmail(email.getRecipient(), tickets, qrCodes);
+            }
+            case FAVORITE_SCREENINGS -> {
+                List<Screening> screenings = screeningCache.computeIfAbsent(email.getPayload(), this::upcomingScreenings);
+                yield screenings.isEmpty() ? null
+                        : emailService.buildFavoriteScreeningsEmail(email.getRecipient(), screenings);
+            }
+        };
+    }
+
+    // Сеансы сводки, которые ещё не начались (и не удалены), по времени
+    private List<Screening> upcomingScreenings(String payload) {
+        List<Long> ids = Arrays.stream(payload.split(",")).map(Long::valueOf).distinct().toList();
+        LocalDateTime now = LocalDateTime.now();
+        return screeningRepository.findAllById(ids).stream()
+                .filter(s -> s.getStartTime().isAfter(now))
+                .sorted(Comparator.comparing(Screening::getStartTime))
+                .toList();
+    }
+
+    // Ошибка отправки: повтор с отсрочкой 2^n (с разбросом ±20%, чтобы повторы не шли волной) или DEAD
+    private void failed(OutboxEmail email, Exception error, LocalDateTime now) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        email.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+        if (attempts >= maxAttempts) {
+            email.setStatus(OutboxEmail.Status.DEAD);
+            logger.error("Email {} to {} is dead after {} attempts: {}", email.getId(), email.getRecipient(), attempts, message);
+            return;
+        }
+        long delayMillis = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempts - 1, 30));
+        delayMillis = (long) (delayMillis * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+        email.setNextAttemptAt(now.plus(Duration.ofMillis(delayMillis)));
+        logger.warn("Email {} to {} failed (attempt {}), retry in {} s: {}",
+                email.getId(), email.getRecipient(), attempts, delayMillis / 1000, message);
+    }
+}
@@ -1,87 +1,116 @@
 package com.example.cinema.service;
 
+import com.example.cinema.domain.Screening;
 import com.example.cinema.domain.Ticket;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @Service // Сервис для отправки email-сообщений
 public class EmailService {
 
     private final JavaMailSender mailSender; // Spring-обёртка над JavaMail для отправки писем
+    private final SpringTemplateEngine templates; // Шаблоны писем (templates/mail), разобранные один раз
+    private final String siteUrl; // Адрес сайта для ссылок в письмах
 
-    public EmailService(JavaMailSender mailSender) {
+    public EmailService(JavaMailSender mailSender,
+                        @Value("${app.mail.site-url:http://localhost:8080}") String siteUrl) {
         this.mailSender = mailSender;
+        this.siteUrl = siteUrl.endsWith("/") ? siteUrl.substring(0, siteUrl.length() - 1) : siteUrl;
+        // Отдельный движок с кэшем: spring.thymeleaf.cache=false для страниц не должен заставлять
+        // разбирать шаблон письма заново на каждое письмо
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/mail/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        this.templates = new SpringTemplateEngine();
+        this.templates.setTemplateResolver(resolver);
     }
 
-    public void sendTicketsEmail(String to,
-                                 List<Ticket> tickets,
-                                 Map<Long, String> qrBase64) {
-
-        if (to == null || to.isBlank()) {
-            return; // Если адрес пустой — просто ничего не отправляем
+    /**
+     * Письмо с билетами. QR-коды (PNG по id билета) идут inline-вложениями, HTML ссылается на них через cid:qr-{id}.
+     * Массивы PNG не копируются — те же байты, что в кэше QR. Отправляется через {@link #sendInOneSession}
+     */
+    public MimeMessage buildTicketsEmail(String to,
+                                         List<Ticket> tickets,
+                                         Map<Long, byte[]> qrPng) throws MessagingException {
+
+        MimeMessage message = mailSender.createMimeMessage(); // Создаём MIME-письмо
+        MimeMessageHelper helper = new MimeMessageHelper(
+                message, MimeMessageHelper.MULTIPART_MODE_RELATED, "UTF-8"); // HTML и картинки в одном multipart/related
+
+        helper.setTo(to);
+        helper.setSubject("Ваши билеты в кино"); // Тема письма
+
+        Context context = new Context(Locale.forLanguageTag("ru"));
+        context.setVariable("tickets", tickets);
+        helper.setText(templates.process("tickets", context), true); // true — это HTML-формат
+
+        // Вложения добавляются после текста — так требует MimeMessageHelper
+        for (Ticket t : tickets) {
+            byte[] png = qrPng.get(t.getId());
+            if (png != null) {
+                helper.addInline("qr-" + t.getId(), new ByteArrayResource(png), "image/png");
+            }
         }
+        return message;
+    }
 
-        try {
-            MimeMessage message = mailSender.createMimeMessage(); // Создаём MIME-письмо
-            MimeMessageHelper helper =
-                    new MimeMessageHelper(message, true, "UTF-8"); // Помощник для удобной работы с HTML и вложениями
-
-            helper.setTo(to);
-            helper.setSubject("Ваши билеты в кино"); // Тема письма
+    // Сводка новых сеансов избранных фильмов, со ссылками на покупку
+    public MimeMessage buildFavoriteScreeningsEmail(String to, List<Screening> screenings) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
 
-            StringBuilder html = new StringBuilder();
-            html.append("<h2>Спасибо за покупку!</h2>");
-            html.append("<p>Ниже — ваши билеты и QR-коды.</p>");
+        helper.setTo(to);
+        helper.setSubject("Новые сеансы ваших избранных фильмов");
 
-            // Формируем HTML-блок для каждого билета
-            for (Ticket t : tickets) {
-                String img = qrBase64.get(t.getId()); // Берём base64-картинку QR по id билета
-                html.append("<hr/>");
-                html.append("<p>")
-                        .append("<strong>Фильм:</strong> ")
-                        .append(escape(t.getScreening().getMovie().getTitle())) // Экранируем спецсимволы
-                        .append("<br/>")
-                        .append("<strong>Дата и время:</strong> ")
-                        .append(t.getScreening().getStartTime())
-                        .append("<br/>")
-                        .append("<strong>Место:</strong> ")
-                        .append(escape(t.getSeat()))
-                        .append("</p>");
+        Context context = new Context(Locale.forLanguageTag("ru"));
+        context.setVariable("screenings", screenings);
+        context.setVariable("siteUrl", siteUrl);
+        helper.setText(templates.process("favorite-screenings", context), true);
+        return message;
+    }
 
-                // Встраиваем QR-код как data:image/png;base64
-                if (img != null) {
-                    html.append("<img style=\"width:220px;height:220px;border-radius:12px;\" ")
-                            .append("src=\"data:image/png;base64,")
-                            .append(img)
-                            .append("\" />");
-                }
+    /**
+     * Отправка пачки писем за одно SMTP-соединение (JavaMailSender.send(MimeMessage...)).
+     * Возвращает письма, которые не ушли, с причиной; пустой результат — ушли все.
+     */
+    public Map<MimeMessage, Exception> sendInOneSession(List<MimeMessage> messages) {
+        if (messages.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            mailSender.send(messages.toArray(new MimeMessage[0]));
+            return Map.of();
+        } catch (MailSendException e) {
+            Map<MimeMessage, Exception> failed = new IdentityHashMap<>();
+            e.getFailedMessages().forEach((message, cause) -> failed.put((MimeMessage) message, cause));
+            if (failed.isEmpty()) {
+                messages.forEach(message -> failed.put(message, e)); // Причина неизвестна — считаем, что не ушло ничего
             }
-
-            helper.setText(html.toString(), true); // true — это HTML-формат
-
-            // Может бросить MailSendException
-            mailSender.send(message); // Пытаемся отправить письмо
-
-        } catch (MessagingException | MailException e) {
-            // В разработке просто логируем, чтобы покупка не падала
-            e.printStackTrace();
-        } catch (Exception e) {
-            e.printStackTrace();
+            return failed;
+        } catch (MailException e) {
+            // Например, не прошла авторизация — не ушло ни одно письмо
+            Map<MimeMessage, Exception> failed = new IdentityHashMap<>();
+            messages.forEach(message -> failed.put(message, e));
+            return failed;
         }
     }
-
-    // Простая экранизация HTML-спецсимволов, чтобы защититься от некорректного вывода
-    private String escape(String s) {
-        if (s == null) return "";
-        return s.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;");
-    }
-}
\ No newline at end of file
+}
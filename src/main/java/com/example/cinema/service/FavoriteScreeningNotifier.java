@@ -0,0 +1,153 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.OutboxEmail;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.repo.AppUserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Уведомления «новый сеанс избранного фильма». Админ добавляет сеанс — поклонникам фильма в очередь писем
+ * ({@link EmailOutboxService}) ставится дневная сводка: одно письмо на пользователя в день, в app.notifications.digest-time.
+ * Новые сеансы дописываются в ещё не отправленную сводку (ключ FAV:{id пользователя}:{дата сводки}).
+ * <p>
+ * Поклонники читаются порциями по keyset (id > последнего), каждая порция — два batch-запроса в своей транзакции,
+ * так что и сотни тысяч получателей не грузятся в память разом. Рассылка идёт в одном фоновом потоке:
+ * запрос админа не ждёт, а две рассылки не пишут одни и те же сводки одновременно.
+ */
+@Service
+public class FavoriteScreeningNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(FavoriteScreeningNotifier.class);
+
+    // Не дописываем в сводку, которую вот-вот возьмёт на отправку очередь писем
+    private static final int DIGEST_CUTOFF_MINUTES = 1;
+    private static final int MAX_PAYLOAD = 4000;
+
+    private final AppUserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LocalTime digestTime;
+    private final int chunkSize;
+    private final ExecutorService fanOut = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("fan-out-"));
+
+    public FavoriteScreeningNotifier(AppUserRepository userRepository,
+                                     JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${app.notifications.digest-time:10:00}") LocalTime digestTime,
+                                     @Value("${app.notifications.fan-out-chunk:1000}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.digestTime = digestTime;
+        this.chunkSize = chunkSize;
+    }
+
+    // Новый сеанс уже сохранён; поклонники обходятся в фоне
+    public void screeningAdded(Screening screening) {
+        if (screening.getStartTime() == null || screening.getStartTime().isBefore(LocalDateTime.now())) {
+            return; // О прошедших сеансах не сообщаем
+        }
+        long movieId = screening.getMovie().getId();
+        long screeningId = screening.getId();
+        fanOut.execute(() -> {
+            try {
+                notifyFans(movieId, screeningId);
+            } catch (RuntimeException e) {
+                logger.error("Fan-out for screening {} failed", screeningId, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOut.shutdown();
+    }
+
+    // Возвращает число поклонников, которым сеанс попал в сводку
+    int notifyFans(long movieId, long screeningId) {
+        LocalDateTime digestAt = nextDigest(LocalDateTime.now());
+        long afterId = 0;
+        int notified = 0;
+        List<AppUserRepository.FanRow> fans;
+        do {
+            fans = userRepository.findFansAfter(movieId, afterId, PageRequest.of(0, chunkSize));
+            if (fans.isEmpty()) {
+                break;
+            }
+            List<AppUserRepository.FanRow> chunk = fans;
+            transactionTemplate.executeWithoutResult(status -> appendToDigests(chunk, screeningId, digestAt));
+            afterId = fans.get(fans.size() - 1).getId();
+            notified += fans.size();
+        } while (fans.size() == chunkSize);
+        logger.info("Screening {} queued for {} fans, digest at {}", screeningId, notified, digestAt);
+        return notified;
+    }
+
+    // Дописываем сеанс в уже заведённые сводки, остальным поклонникам заводим новые
+    private void appendToDigests(List<AppUserRepository.FanRow> fans,
+                                 long screeningId,
+                                 LocalDateTime digestAt) {
+        String id = Long.toString(screeningId);
+        int[][] updated = jdbcTemplate.batchUpdate(
+                // Переполненную сводку не трогаем: эти сеансы пользователь увидит на сайте
+                "update email_outbox set payload = case when length(payload) + ? < ? then payload || ',' || ? else payload end "
+                        + "where coalesce_key = ? and status = 'PENDING'",
+                fans, fans.size(), (ps, fan) -> {
+                    ps.setInt(1, id.length() + 1);
+                    ps.setInt(2, MAX_PAYLOAD);
+                    ps.setString(3, id);
+                    ps.setString(4, digestKey(fan.getId(), digestAt.toLocalDate()));
+                });
+
+        List<AppUserRepository.FanRow> fresh = new ArrayList<>();
+        for (int i = 0; i < fans.size(); i++) {
+            if (updated[0][i] == 0) {
+                fresh.add(fans.get(i));
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp sendAt = Timestamp.valueOf(digestAt);
+        jdbcTemplate.batchUpdate(
+                "insert into email_outbox (recipient, kind, payload, status, attempts, next_attempt_at, coalesce_key, created_at) "
+                        + "values (?, ?, ?, ?, 0, ?, ?, ?)",
+                fresh, fresh.size(), (ps, fan) -> {
+                    ps.setString(1, fan.getEmail());
+                    ps.setString(2, OutboxEmail.Kind.FAVORITE_SCREENINGS.name());
+                    ps.setString(3, id);
+                    ps.setString(4, OutboxEmail.Status.PENDING.name());
+                    ps.setTimestamp(5, sendAt);
+                    ps.setString(6, digestKey(fan.getId(), digestAt.toLocalDate()));
+                    ps.setTimestamp(7, now);
+                });
+    }
+
+    private static String digestKey(long userId, LocalDate day) {
+        return "FAV:" + userId + ":" + day;
+    }
+
+    // Ближайшая сводка, в которую ещё можно дописать
+    LocalDateTime nextDigest(LocalDateTime now) {
+        LocalDateTime digest = now.toLocalDate().atTime(digestTime);
+        return digest.isAfter(now.plusMinutes(DIGEST_CUTOFF_MINUTES)) ? digest : digest.plusDays(1);
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.cinema.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Разобранная схема зала (см. {@link com.example.cinema.domain.Hall#getLayout()}).
+ * Каждому месту присвоен плотный индекс 0..capacity-1 (по рядам слева направо),
+ * таблицы индекс -> ряд/место/позиция/тип строятся один раз при разборе. Объект неизменяемый.
+ */
+public final class HallLayout {
+
+    public static final int MAX_COLUMNS = Long.SIZE; // Ряд целиком помещается в одно слово карты мест
+    public static final char GAP = '_';              // Проход — позиция без места
+
+    public enum SeatType {
+        STANDARD('S'), VIP('V'), WHEELCHAIR('W');
+
+        private final char code;
+
+        SeatType(char code) {
+            this.code = code;
+        }
+
+        public char getCode() {
+            return code;
+        }
+
+        static SeatType of(char code) {
+            for (SeatType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final SeatType[] TYPES = SeatType.values();
+
+    private final String source;        // Исходный текст схемы (ключ кэша)
+    private final List<String> rowPlans; // Нормализованные строки схемы, по одной на ряд
+    private final int columns;          // Ширина самого длинного ряда
+    private final long[] seatMasks;     // Для каждого ряда: биты позиций, на которых есть места
+    private final long[] wheelchairMasks; // Для каждого ряда: позиции мест для колясок
+    private final int[] rowStarts;      // Индекс первого места ряда; rowStarts[rows] == capacity
+    private final int[] rowOfIndex;     // Индекс -> номер ряда (с 1)
+    private final int[] seatOfIndex;    // Индекс -> номер места в ряду (с 1)
+    private final int[] columnOfIndex;  // Индекс -> позиция в ряду (с 0, с учётом проходов)
+    private final byte[] typeOfIndex;   // Индекс -> SeatType.ordinal()
+
+    private HallLayout(String source, List<String> rowPlans) {
+        this.source = source;
+        this.rowPlans = Collections.unmodifiableList(rowPlans);
+
+        int rows = rowPlans.size();
+        int capacity = 0;
+        int width = 0;
+        for (String plan : rowPlans) {
+            width = Math.max(width, plan.length());
+            for (int c = 0; c < plan.length(); c++) {
+                if (plan.charAt(c) != GAP) {
+                    capacity++;
+                }
+            }
+        }
+        this.columns = width;
+        this.seatMasks = new long[rows];
+        this.wheelchairMasks = new long[rows];
+        this.rowStarts = new int[rows + 1];
+        this.rowOfIndex = new int[capacity];
+        this.seatOfIndex = new int[capacity];
+        this.columnOfIndex = new int[capacity];
+        this.typeOfIndex = new byte[capacity];
+
+        int index = 0;
+        for (int r = 0; r < rows; r++) {
+            rowStarts[r] = index;
+            String plan = rowPlans.get(r);
+            int seat = 0;
+            for (int c = 0; c < plan.length(); c++) {
+                char code = plan.charAt(c);
+                if (code == GAP) {
+                    continue;
+                }
+                seatMasks[r] |= 1L << c;
+                if (code == SeatType.WHEELCHAIR.getCode()) {
+                    wheelchairMasks[r] |= 1L << c;
+                }
+                rowOfIndex[index] = r + 1;
+                seatOfIndex[index] = ++seat;
+                columnOfIndex[index] = c;
+                typeOfIndex[index] = (byte) SeatType.of(code).ordinal();
+                index++;
+            }
+        }
+        rowStarts[rows] = index;
+    }
+
+    /**
+     * Разбирает текст схемы. Пустые строки и пробелы по краям игнорируются, регистр не важен.
+     * Некорректная схема — IllegalArgumentException с описанием ошибки.
+     */
+    public static HallLayout parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Схема зала пуста");
+        }
+        List<String> rowPlans = new ArrayList<>();
+        for (String line : text.strip().split("\\R")) {
+            String plan = line.strip().toUpperCase();
+            if (plan.isEmpty()) {
+                continue;
+            }
+            int row = rowPlans.size() + 1;
+            if (plan.length() > MAX_COLUMNS) {
+                throw new IllegalArgumentException("Ряд " + row + ": больше " + MAX_COLUMNS + " позиций");
+            }
+            boolean hasSeat = false;
+            for (int c = 0; c < plan.length(); c++) {
+                char code = plan.charAt(c);
+                if (code != GAP && SeatType.of(code) == null) {
+                    throw new IllegalArgumentException("Ряд " + row + ": недопустимый символ '" + code + "'");
+                }
+                hasSeat |= code != GAP;
+            }
+            if (!hasSeat) {
+                throw new IllegalArgumentException("Ряд " + row + ": нет ни одного места");
+            }
+            rowPlans.add(plan);
+        }
+        return new HallLayout(text, rowPlans);
+    }
+
+    // Прямоугольный зал из обычных мест
+    public static String uniform(int rows, int seatsPerRow) {
+        String row = String.valueOf(SeatType.STANDARD.getCode()).repeat(seatsPerRow);
+        return String.join("\n", Collections.nCopies(rows, row));
+    }
+
+    // Индекс места по метке "ряд-место"; -1, если такого места в зале нет
+    public int indexOf(String seatLabel) {
+        if (seatLabel == null) {
+            return -1;
+        }
+        int dash = seatLabel.indexOf('-');
+        if (dash <= 0 || dash == seatLabel.length() - 1) {
+            return -1;
+        }
+        try {
+            int row = Integer.parseInt(seatLabel, 0, dash, 10);
+            int seat = Integer.parseInt(seatLabel, dash + 1, seatLabel.length(), 10);
+            return indexOf(row, seat);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public int indexOf(int row, int seat) {
+        if (row < 1 || row > getRows() || seat < 1 || seat > getSeatsInRow(row)) {
+            return -1;
+        }
+        return rowStarts[row - 1] + seat - 1;
+    }
+
+    public String labelOf(int index) {
+        return rowOfIndex[index] + "-" + seatOfIndex[index];
+    }
+
+    public int rowOf(int index) {
+        return rowOfIndex[index];
+    }
+
+    public int seatOf(int index) {
+        return seatOfIndex[index];
+    }
+
+    public int columnOf(int index) {
+        return columnOfIndex[index];
+    }
+
+    public SeatType typeOf(int index) {
+        return TYPES[typeOfIndex[index]];
+    }
+
+    // Индекс места, стоящего в ряду row на позиции column; -1 — там проход или позиция вне ряда
+    public int indexAt(int row, int column) {
+        if (row < 1 || row > getRows() || column < 0 || column >= MAX_COLUMNS) {
+            return -1;
+        }
+        long mask = seatMasks[row - 1];
+        if ((mask & (1L << column)) == 0) {
+            return -1;
+        }
+        // Номер места = число мест левее этой позиции + 1
+        return rowStarts[row - 1] + Long.bitCount(mask & ((1L << column) - 1));
+    }
+
+    public int getSeatsInRow(int row) {
+        return rowStarts[row] - rowStarts[row - 1];
+    }
+
+    public long getSeatMask(int row) {
+        return seatMasks[row - 1];
+    }
+
+    public long getWheelchairMask(int row) {
+        return wheelchairMasks[row - 1];
+    }
+
+    public int getRows() {
+        return rowPlans.size();
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getCapacity() {
+        return rowStarts[rowPlans.size()];
+    }
+
+    public List<String> getRowPlans() {
+        return rowPlans;
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
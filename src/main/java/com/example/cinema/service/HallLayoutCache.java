@@ -0,0 +1,31 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Hall;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Разобранные схемы залов. Схема разбирается один раз и переиспользуется всеми сеансами зала;
+ * если текст схемы в зале изменился, при следующем обращении она разбирается заново.
+ */
+@Component
+public class HallLayoutCache {
+
+    private final ConcurrentMap<Long, HallLayout> layouts = new ConcurrentHashMap<>(); // hallId -> схема
+
+    public HallLayout layoutOf(Hall hall) {
+        HallLayout cached = layouts.get(hall.getId());
+        if (cached != null && cached.getSource().equals(hall.getLayout())) {
+            return cached;
+        }
+        HallLayout layout = HallLayout.parse(hall.getLayout());
+        layouts.put(hall.getId(), layout);
+        return layout;
+    }
+
+    public void evict(Long hallId) {
+        layouts.remove(hallId);
+    }
+}
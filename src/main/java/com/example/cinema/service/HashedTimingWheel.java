@@ -0,0 +1,92 @@
+package com.example.cinema.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Хешированное колесо таймеров: много отложенных задач без отдельного таймера на каждую.
+ * Элементы раскладываются по ячейкам колеса, {@link #advance(long)} за один проход
+ * забирает всё, что истекло к текущему моменту.
+ * Добавлять можно из любого потока, продвигать колесо — из одного (планировщика).
+ */
+public final class HashedTimingWheel<T> {
+
+    private final long tickMillis;                   // Длительность одного шага колеса
+    private final List<Entry<T>>[] wheel;            // Ячейки колеса
+    private final int mask;
+    private final Queue<Entry<T>> pending = new ConcurrentLinkedQueue<>(); // Новые элементы до ближайшего шага
+    private long tick;                               // Номер последнего обработанного шага
+    private final long startMillis;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Tick must be positive and wheel size a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.wheel = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new LinkedList<>();
+        }
+        this.mask = wheelSize - 1;
+        this.startMillis = nowMillis;
+    }
+
+    // Запланировать элемент на момент deadlineMillis; потокобезопасно
+    public void schedule(T item, long deadlineMillis) {
+        pending.add(new Entry<>(item, deadlineMillis));
+    }
+
+    /**
+     * Продвигает колесо до момента nowMillis и возвращает истёкшие элементы.
+     * Вызывается только из одного потока.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+
+        while (tick < targetTick) {
+            tick++;
+            transferPending();
+
+            Iterator<Entry<T>> it = wheel[(int) (tick & mask)].iterator();
+            while (it.hasNext()) {
+                Entry<T> entry = it.next();
+                if (entry.remainingRounds <= 0) {
+                    it.remove();
+                    expired.add(entry.item);
+                } else {
+                    entry.remainingRounds--; // Ещё не этот оборот колеса
+                }
+            }
+        }
+        transferPending(); // Чтобы новые элементы не ждали лишний шаг
+        return expired;
+    }
+
+    // Раскладываем новые элементы по ячейкам
+    private void transferPending() {
+        Entry<T> entry;
+        while ((entry = pending.poll()) != null) {
+            long deadlineTick = Math.max((entry.deadlineMillis - startMillis + tickMillis - 1) / tickMillis, tick + 1);
+            long ticksLeft = deadlineTick - tick;
+            entry.remainingRounds = (ticksLeft - 1) / wheel.length;
+            wheel[(int) (deadlineTick & mask)].add(entry);
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long deadlineMillis;
+        private long remainingRounds; // Сколько полных оборотов колеса осталось
+
+        private Entry(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
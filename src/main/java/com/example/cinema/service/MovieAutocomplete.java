@@ -0,0 +1,207 @@
+package com.example.cinema.service;
+
+import com.example.cinema.dto.MovieSuggestion;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Автодополнение поиска: по префиксу — фильмы, у которых с него начинается слово названия или имени режиссёра.
+ * <p>
+ * Снимок неизменяемый и заменяется целиком. Фильмы в нём упорядочены по рангу (больше предстоящих сеансов — выше,
+ * при равенстве по названию), так что номер фильма и есть его ранг, а лучшие k — это k наименьших номеров.
+ * Ключи — хвосты нормализованных названий и имён с начала каждого слова, отсортированы: префикс даёт непрерывный
+ * диапазон (двоичный поиск). Для префиксов до {@value #SHORT_PREFIX} символов, где диапазоны длинные,
+ * лучшие {@value #MAX_LIMIT} посчитаны заранее.
+ * <p>
+ * Снимок пересобирается после изменений в админке (см. {@link #invalidate()}) и раз в app.autocomplete.max-age —
+ * прошедшие сеансы перестают влиять на ранг.
+ */
+@Component
+public class MovieAutocomplete {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieAutocomplete.class);
+
+    public static final int MAX_LIMIT = 20;
+    private static final int SHORT_PREFIX = 3;
+
+    // Фильм для снимка
+    public record Candidate(long id, String title, String director, int upcoming) {
+    }
+
+    private record Snapshot(Candidate[] movies,        // По рангу
+                            String[] keys,             // Отсортированные хвосты слов
+                            int[] keyMovies,           // Номер фильма для каждого ключа
+                            Map<String, int[]> shortTop, // Короткий префикс -> лучшие номера фильмов
+                            LocalDateTime builtAt) {
+    }
+
+    private final MovieRepository movieRepository;
+    private final ScreeningRepository screeningRepository;
+    private final Duration maxAge;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile Snapshot snapshot = build(List.of());
+
+    public MovieAutocomplete(MovieRepository movieRepository,
+                             ScreeningRepository screeningRepository,
+                             @Value("${app.autocomplete.max-age:PT10M}") Duration maxAge) {
+        this.movieRepository = movieRepository;
+        this.screeningRepository = screeningRepository;
+        this.maxAge = maxAge;
+    }
+
+    @PostConstruct
+    public void load() {
+        dirty.set(false);
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Integer> upcoming = new HashMap<>();
+        screeningRepository.countUpcomingByMovie(now)
+                .forEach(row -> upcoming.put(row.getMovieId(), (int) row.getScreenings()));
+        List<Candidate> candidates = movieRepository.findAllLabels().stream()
+                .map(m -> new Candidate(m.getId(), m.getTitle(), m.getDirector(), upcoming.getOrDefault(m.getId(), 0)))
+                .toList();
+        rebuild(candidates);
+    }
+
+    public void rebuild(List<Candidate> candidates) {
+        long started = System.nanoTime();
+        snapshot = build(candidates);
+        logger.debug("Autocomplete snapshot: {} movies, {} keys in {} µs",
+                candidates.size(), snapshot.keys().length, (System.nanoTime() - started) / 1000);
+    }
+
+    // Фильмы или сеансы изменились — снимок пересоберётся при следующей проверке
+    public void invalidate() {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.autocomplete.refresh-check:PT5S}")
+    public void refreshIfNeeded() {
+        if (dirty.get() || snapshot.builtAt().plus(maxAge).isBefore(LocalDateTime.now())) {
+            load();
+        }
+    }
+
+    public List<MovieSuggestion> suggest(String prefix, int limit) {
+        String q = MovieSearchIndex.normalize(prefix);
+        int k = Math.min(limit, MAX_LIMIT);
+        if (q.isEmpty() || k <= 0) {
+            return List.of();
+        }
+        Snapshot s = snapshot;
+        int[] best;
+        int found;
+        if (q.length() <= SHORT_PREFIX) {
+            best = s.shortTop().getOrDefault(q, new int[0]);
+            found = Math.min(k, best.length);
+        } else {
+            best = new int[k];
+            found = 0;
+            for (int i = lowerBound(s.keys(), q); i < s.keys().length && s.keys()[i].startsWith(q); i++) {
+                found = insertDistinct(best, found, s.keyMovies()[i]);
+            }
+        }
+        List<MovieSuggestion> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            Candidate movie = s.movies()[best[i]];
+            result.add(new MovieSuggestion(movie.id(), movie.title(), movie.director(), movie.upcoming()));
+        }
+        return result;
+    }
+
+    private static Snapshot build(List<Candidate> candidates) {
+        Candidate[] movies = candidates.stream()
+                .sorted(Comparator.comparingInt(Candidate::upcoming).reversed()
+                        .thenComparing(c -> c.title() == null ? "" : c.title()))
+                .toArray(Candidate[]::new);
+
+        // Хвосты с начала каждого слова: «матрица перезагрузка», «перезагрузка»
+        List<String> keyList = new ArrayList<>();
+        List<Integer> movieList = new ArrayList<>();
+        for (int m = 0; m < movies.length; m++) {
+            for (String text : new String[]{movies[m].title(), movies[m].director()}) {
+                String normalized = MovieSearchIndex.normalize(text);
+                for (int i = 0; i < normalized.length(); i++) {
+                    if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                        keyList.add(normalized.substring(i));
+                        movieList.add(m);
+                    }
+                }
+            }
+        }
+        Integer[] order = new Integer[keyList.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.<Integer, String>comparing(keyList::get).thenComparing(movieList::get));
+        String[] keys = new String[order.length];
+        int[] keyMovies = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = keyList.get(order[i]);
+            keyMovies[i] = movieList.get(order[i]);
+        }
+
+        // Для коротких префиксов диапазон ключей разбираем один раз при сборке
+        Map<String, int[]> shortTop = new HashMap<>();
+        for (int length = 1; length <= SHORT_PREFIX; length++) {
+            int i = 0;
+            while (i < keys.length) {
+                if (keys[i].length() < length) {
+                    i++;
+                    continue;
+                }
+                String prefix = keys[i].substring(0, length);
+                int[] best = new int[MAX_LIMIT];
+                int found = 0;
+                for (; i < keys.length && keys[i].startsWith(prefix); i++) {
+                    found = insertDistinct(best, found, keyMovies[i]);
+                }
+                shortTop.put(prefix, Arrays.copyOf(best, found));
+            }
+        }
+        return new Snapshot(movies, keys, keyMovies, shortTop, LocalDateTime.now());
+    }
+
+    // Держит в best[0..found) наименьшие различные номера по возрастанию; возвращает новое found
+    private static int insertDistinct(int[] best, int found, int movie) {
+        int pos = Arrays.binarySearch(best, 0, found, movie);
+        if (pos >= 0) {
+            return found; // Фильм уже есть (совпало и название, и режиссёр)
+        }
+        pos = -pos - 1;
+        if (pos >= best.length) {
+            return found; // Хуже всех найденных, а места нет
+        }
+        int end = Math.min(found, best.length - 1);
+        System.arraycopy(best, pos, best, pos + 1, end - pos);
+        best[pos] = movie;
+        return Math.min(found + 1, best.length);
+    }
+
+    private static int lowerBound(String[] keys, String q) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(q) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Movie;
+import com.example.cinema.repo.MovieRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Триграммный индекс поиска фильмов по названию, жанру, режиссёру и стране — в памяти, без LIKE '%...%' по таблице.
+ * <p>
+ * Текст нормализуется (регистр, ё → е, знаки препинания → пробелы) и режется на триграммы; у каждого слова есть
+ * ещё «начальные» триграммы с пробелами ("  м", " ма"), по которым ищутся запросы из одной-двух букв.
+ * Запись в индексе — слот документа и поле (2 бита). Запрос считает совпавшие триграммы по слотам и полям:
+ * поле подходит, если совпало не меньше min-similarity триграмм запроса, — так находятся и слова с опечаткой.
+ * Ранжирование: точная подстрока выше похожего, начало слова выше середины, название выше остальных полей.
+ * <p>
+ * Изменения фильма — новый слот, старый помечается удалённым; когда удалённых больше половины, индекс пересобирается.
+ */
+@Component
+public class MovieSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieSearchIndex.class);
+
+    private static final int FIELDS = 4; // Название, режиссёр, жанр, страна
+    private static final double[] FIELD_WEIGHTS = {1.0, 0.8, 0.6, 0.6};
+
+    // Проиндексированный фильм: нормализованные поля в порядке FIELD_WEIGHTS и число триграмм в каждом
+    private record Doc(long movieId, String title, String[] fields, int[] gramCounts) {
+    }
+
+    // Растущий массив id записей (слот << 2 | поле) для одной триграммы
+    private static final class Postings {
+        int[] entries = new int[4];
+        int size;
+
+        void add(int entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+    }
+
+    // Счётчики совпадений на запрос; берутся из пула (потоки запросов виртуальные — ThreadLocal не поможет),
+    // после запроса обнулены только тронутые ячейки
+    private static final class Scratch {
+        int[] counts = new int[0];  // Совпавшие триграммы по записи (слот << 2 | поле)
+        int[] touched = new int[0];
+        double[] best = new double[0]; // Лучший счёт по слоту
+        int[] slots = new int[0];
+    }
+
+    private final MovieRepository movieRepository;
+    private final double minSimilarity;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Queue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+
+    // Под lock
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final List<Doc> docs = new ArrayList<>(); // Слот -> документ; null — удалён
+    private final Map<Long, Integer> slotByMovie = new HashMap<>();
+    private int removed;
+
+    public MovieSearchIndex(MovieRepository movieRepository,
+                            @Value("${app.search.min-similarity:0.5}") double minSimilarity) {
+        this.movieRepository = movieRepository;
+        this.minSimilarity = minSimilarity;
+    }
+
+    @PostConstruct
+    public void load() {
+        long started = System.nanoTime();
+        List<Movie> movies = movieRepository.findAll();
+        rebuild(movies);
+        logger.info("Movie search index: {} movies, {} trigrams in {} ms",
+                movies.size(), postings.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public void rebuild(List<Movie> movies) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docs.clear();
+            slotByMovie.clear();
+            removed = 0;
+            for (Movie movie : movies) {
+                add(movie);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Фильм создан или изменён
+    public void put(Movie movie) {
+        if (movie.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markRemoved(movie.getId());
+            add(movie);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long movieId) {
+        lock.writeLock().lock();
+        try {
+            markRemoved(movieId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * id фильмов по убыванию релевантности, не больше limit. Пустой запрос — пустой результат
+     * (весь каталог показывает вызывающий код).
+     */
+    public List<Long> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        long[] grams = queryTrigrams(normalized);
+        // Короткий запрос (только начальные триграммы) опечаток не прощает
+        int minHits = grams.length <= 2 ? grams.length : Math.max(1, (int) Math.ceil(grams.length * minSimilarity));
+
+        Scratch s = scratchPool.poll();
+        if (s == null) {
+            s = new Scratch();
+        }
+        lock.readLock().lock();
+        try {
+            int cells = docs.size() * FIELDS;
+            if (s.counts.length < cells) {
+                s.counts = new int[Math.max(cells, s.counts.length * 2)];
+                s.best = new double[s.counts.length / FIELDS];
+                s.slots = new int[s.counts.length / FIELDS];
+            }
+            int touchedCount = 0;
+            for (long gram : grams) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size; i++) {
+                    int entry = list.entries[i];
+                    if (s.counts[entry]++ == 0) {
+                        if (touchedCount == s.touched.length) {
+                            s.touched = Arrays.copyOf(s.touched, Math.max(64, touchedCount * 2));
+                        }
+                        s.touched[touchedCount++] = entry;
+                    }
+                }
+            }
+
+            // Лучшее поле каждого фильма; слоты с ненулевым счётом — в s.slots
+            int slotCount = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int entry = s.touched[i];
+                int hits = s.counts[entry];
+                s.counts[entry] = 0;
+                if (hits < minHits) {
+                    continue;
+                }
+                int slot = entry >>> 2;
+                int field = entry & 3;
+                Doc doc = docs.get(slot);
+                if (doc == null) {
+                    continue;
+                }
+                double score = FIELD_WEIGHTS[field] * fieldScore(doc.fields()[field], normalized,
+                        hits, grams.length, doc.gramCounts()[field]);
+                if (s.best[slot] == 0) {
+                    s.slots[slotCount++] = slot;
+                }
+                s.best[slot] = Math.max(s.best[slot], score);
+            }
+
+            // Top-k кучей: популярное слово может дать десятки тысяч кандидатов, сортировать их все незачем
+            double[] best = s.best;
+            Comparator<Integer> byRank = Comparator.<Integer>comparingDouble(slot -> best[slot])
+                    .thenComparing(slot -> docs.get(slot).title(), Comparator.reverseOrder());
+            PriorityQueue<Integer> top = new PriorityQueue<>(Math.min(limit, slotCount) + 1, byRank);
+            for (int i = 0; i < slotCount; i++) {
+                int slot = s.slots[i];
+                if (top.size() < limit) {
+                    top.add(slot);
+                } else if (byRank.compare(slot, top.peek()) > 0) {
+                    top.poll();
+                    top.add(slot);
+                }
+            }
+            Long[] ids = new Long[top.size()];
+            for (int i = ids.length - 1; i >= 0; i--) {
+                ids[i] = docs.get(top.poll()).movieId();
+            }
+            for (int i = 0; i < slotCount; i++) {
+                best[s.slots[i]] = 0; // Куча разобрана — счёты больше не нужны
+            }
+            return List.of(ids);
+        } finally {
+            lock.readLock().unlock();
+            scratchPool.offer(s);
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByMovie.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Подстрока: 2 — с начала поля, 1.5 — с начала слова, 1 — в середине;
+    // иначе сходство по Жаккару (общие триграммы / все), < 1: длинное поле с парой общих триграмм — ниже короткого
+    private static double fieldScore(String field, String query, int hits, int queryGrams, int fieldGrams) {
+        int at = hits == queryGrams ? field.indexOf(query) : -1; // Без всех триграмм запроса подстроки точно нет
+        if (at == 0) {
+            return 2.0;
+        }
+        if (at > 0) {
+            return field.charAt(at - 1) == ' ' ? 1.5 : 1.0;
+        }
+        return 0.99 * hits / (queryGrams + fieldGrams - hits);
+    }
+
+    private void add(Movie movie) {
+        String[] fields = {
+                normalize(movie.getTitle()),
+                normalize(movie.getDirector()),
+                normalize(movie.getGenre()),
+                normalize(movie.getCountry())
+        };
+        int[] gramCounts = new int[FIELDS];
+        for (int field = 0; field < FIELDS; field++) {
+            gramCounts[field] = documentTrigrams(fields[field]).length;
+        }
+        index(new Doc(movie.getId(), fields[0], fields, gramCounts));
+    }
+
+    private void index(Doc doc) {
+        int slot = docs.size();
+        docs.add(doc);
+        slotByMovie.put(doc.movieId(), slot);
+        for (int field = 0; field < FIELDS; field++) {
+            for (long gram : documentTrigrams(doc.fields()[field])) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(slot << 2 | field);
+            }
+        }
+    }
+
+    private void markRemoved(Long movieId) {
+        Integer slot = slotByMovie.remove(movieId);
+        if (slot != null) {
+            docs.set(slot, null);
+            removed++;
+        }
+    }
+
+    // Удалённые слоты остаются в списках триграмм — чистим, когда их стало больше половины
+    private void compactIfNeeded() {
+        if (removed > 32 && removed * 2 > docs.size()) {
+            List<Doc> live = docs.stream().filter(Objects::nonNull).toList();
+            postings.clear();
+            docs.clear();
+            slotByMovie.clear();
+            removed = 0;
+            live.forEach(this::index);
+        }
+    }
+
+    // Все триграммы поля: у каждого слова — "  а", " аб" и внутренние; без повторов
+    private static long[] documentTrigrams(String text) {
+        if (text.isEmpty()) {
+            return new long[0];
+        }
+        Set<Long> grams = new LinkedHashSet<>();
+        for (String word : text.split(" ")) {
+            String padded = "  " + word;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(pack(padded, i));
+            }
+        }
+        return grams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Триграммы запроса: внутренние для слов от 3 букв, начальная — для слов из одной-двух
+    private static long[] queryTrigrams(String query) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (String word : query.split(" ")) {
+            if (word.length() >= 3) {
+                for (int i = 0; i + 3 <= word.length(); i++) {
+                    grams.add(pack(word, i));
+                }
+            } else {
+                String padded = (word.length() == 1 ? "  " : " ") + word;
+                grams.add(pack(padded, 0));
+            }
+        }
+        return grams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long pack(String s, int from) {
+        return (long) s.charAt(from) << 32 | (long) s.charAt(from + 1) << 16 | s.charAt(from + 2);
+    }
+
+    // Нижний регистр, ё → е, всё, кроме букв и цифр, — пробел; пробелы схлопываются
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        StringBuilder sb = new StringBuilder(lower.length());
+        boolean space = true;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int end = sb.length();
+        if (end > 0 && sb.charAt(end - 1) == ' ') {
+            sb.setLength(end - 1);
+        }
+        return sb.toString();
+    }
+}
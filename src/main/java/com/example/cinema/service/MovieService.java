@@ -18,15 +18,33 @@ public class MovieService {
     private final ScreeningRepository screeningRepository;
     private final TicketRepository ticketRepository;
     private final AppUserRepository userRepository;
+    private final SeatInventoryService seatInventory;
+    private final CheckInService checkIns;
+    private final MovieSearchIndex searchIndex;
+    private final MovieAutocomplete autocomplete;
+    private final CatalogCache catalog;
+    private final ScheduleMaterializer schedule;
 
     public MovieService(MovieRepository movieRepository,
                         ScreeningRepository screeningRepository,
                         TicketRepository ticketRepository,
-                        AppUserRepository userRepository) {
+                        AppUserRepository userRepository,
+                        SeatInventoryService seatInventory,
+                        CheckInService checkIns,
+                        MovieSearchIndex searchIndex,
+                        MovieAutocomplete autocomplete,
+                        CatalogCache catalog,
+                        ScheduleMaterializer schedule) {
         this.movieRepository = movieRepository;
         this.screeningRepository = screeningRepository;
         this.ticketRepository = ticketRepository;
         this.userRepository = userRepository;
+        this.seatInventory = seatInventory;
+        this.checkIns = checkIns;
+        this.searchIndex = searchIndex;
+        this.autocomplete = autocomplete;
+        this.catalog = catalog;
+        this.schedule = schedule;
     }
 
     @Transactional
@@ -49,5 +67,15 @@ public class MovieService {
 
         // 4. Удаляем сам фильм
         movieRepository.delete(movie);
+
+        // 5. Сбрасываем карты мест и контроль на входе удалённых сеансов
+        seatInventory.evictAll();
+        checkIns.ticketsDeleted();
+
+        // 6. Убираем фильм из поиска, подсказок, кэша каталога и расписания (расписание пересоберётся после коммита)
+        searchIndex.remove(movieId);
+        autocomplete.invalidate();
+        catalog.invalidateMovies();
+        schedule.movieChanged(movieId);
     }
 }
\ No newline at end of file
@@ -1,40 +1,129 @@
 package com.example.cinema.service;
 
-import com.google.zxing.BarcodeFormat;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.domain.Ticket;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Service // Сервис для генерации QR-кодов
 public class QrCodeService {
 
-    // Для success-страницы и писем
+    private final QrImageCache cache; // Готовые PNG: один и тот же билет не рисуем повторно
+    private final TicketTokenSigner tokenSigner; // Подписанные токены, которые зашиваются в QR
+    private final Duration tokenValidAfterStart; // Сколько токен действует после начала сеанса
+    private final QrPngEncoder encoder = new QrPngEncoder(); // PNG прямо из матрицы модулей, без ImageIO
+    private final ThreadPoolExecutor renderer; // Рендер QR для корзины из нескольких билетов
+
+    public QrCodeService(QrImageCache cache,
+                         TicketTokenSigner tokenSigner,
+                         @Value("${app.checkin.admit-after-start:PT3H}") Duration tokenValidAfterStart,
+                         @Value("${app.qr.render-threads:0}") int renderThreads,
+                         @Value("${app.qr.render-queue:64}") int renderQueue) {
+        this.cache = cache;
+        this.tokenSigner = tokenSigner;
+        this.tokenValidAfterStart = tokenValidAfterStart;
+        // Рендер — чистая работа процессора, поэтому пул платформенных потоков по числу ядер (и при виртуальных потоках).
+        // Очередь ограничена: при всплеске продаж лишние задачи рисует сам поток запроса — он ждёт не дольше,
+        // чем при рендере по одному, а пул и очередь не разрастаются
+        int threads = renderThreads > 0 ? renderThreads : Runtime.getRuntime().availableProcessors();
+        this.renderer = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(renderQueue),
+                new CustomizableThreadFactory("qr-render-"),
+                (task, executor) -> task.run()); // Как CallerRunsPolicy, но и после shutdown: иначе join() ждал бы вечно
+    }
+
+    // Для success-страницы и писем: один проход base64 по готовому (обычно кэшированному) PNG.
+    // Рисовать PNG сразу в Base64.getEncoder().wrap(...) нельзя без обхода кэша: те же байты нужны для ETag и вложений
     public String generateQrBase64(String text, int width, int height) {
-        byte[] bytes = generateQrBytes(text, width, height); // Генерируем PNG как массив байт
-        return Base64.getEncoder().encodeToString(bytes);     // Кодируем PNG в base64-строку для встраивания в HTML
+        return Base64.getEncoder().encodeToString(generateQrBytes(text, width, height));
     }
 
-    // Для отдачи PNG по /tickets/qr/{id}
-    public byte[] generateQrBytes(String text, int width, int height) {
+    // Токен для QR билета: подписан, действует до конца допуска на сеанс. Билет уже должен иметь id
+    public String createTicketToken(Ticket ticket) {
+        Screening screening = ticket.getScreening();
+        Instant expiresAt = screening.getStartTime().plus(tokenValidAfterStart)
+                .atZone(ZoneId.systemDefault()).toInstant();
+        return tokenSigner.sign(ticket.getId(), screening.getId(), expiresAt);
+    }
+
+    // Проверка подписи без обращения к базе; пусто — токен поддельный или старого формата (UUID)
+    public Optional<TicketTokenSigner.Claims> verifyTicketToken(String token) {
+        return tokenSigner.verify(token);
+    }
+
+    /**
+     * QR-коды всей корзины (base64, в порядке texts). Коды рисуются параллельно на пуле рендера;
+     * первый поток запроса рисует сам, пока пул занят остальными. Возвращает управление, когда готовы все.
+     */
+    public List<String> generateQrBase64(List<String> texts, int width, int height) {
+        return renderAll(texts, text -> generateQrBase64(text, width, height));
+    }
+
+    // То же, но готовые PNG — для вложений в письмо; массивы общие с кэшем, изменять их нельзя
+    public List<byte[]> generateQrBytes(List<String> texts, int width, int height) {
+        return renderAll(texts, text -> generateQrBytes(text, width, height));
+    }
+
+    private <T> List<T> renderAll(List<String> texts, Function<String, T> render) {
+        if (texts.size() <= 1) {
+            return texts.stream().map(render).toList();
+        }
+        List<CompletableFuture<T>> rest = new ArrayList<>(texts.size() - 1);
+        for (String text : texts.subList(1, texts.size())) {
+            rest.add(CompletableFuture.supplyAsync(() -> render.apply(text), renderer));
+        }
+        List<T> images = new ArrayList<>(texts.size());
+        images.add(render.apply(texts.get(0)));
         try {
-            QRCodeWriter writer = new QRCodeWriter(); // ZXing-генератор QR-кодов
-            BitMatrix bm = writer.encode(text, BarcodeFormat.QR_CODE, width, height); // Строим матрицу QR-кода
-            BufferedImage image = MatrixToImageWriter.toBufferedImage(bm); // Конвертируем матрицу в картинку
+            for (CompletableFuture<T> image : rest) {
+                images.add(image.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause; // Ошибка рендера — как при вызове по одному
+            }
+            throw e;
+        }
+        return images;
+    }
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", baos); // Записываем PNG в буфер
+    @PreDestroy
+    public void shutdown() {
+        renderer.shutdown();
+    }
 
-            return baos.toByteArray(); // Возвращаем бинарные данные PNG
-        } catch (WriterException | IOException e) {
+    // PNG из кэша; массив общий для всех вызывающих — изменять его нельзя
+    public byte[] generateQrBytes(String text, int width, int height) {
+        return renderQr(text, width, height).png();
+    }
+
+    // PNG вместе с ETag — для отдачи по /tickets/qr/{id}
+    public QrImageCache.QrImage renderQr(String text, int width, int height) {
+        return cache.get(text, width, height, () -> encodePng(text, width, height));
+    }
+
+    private byte[] encodePng(String text, int width, int height) {
+        try {
+            return encoder.encode(text, width, height);
+        } catch (WriterException e) {
             throw new RuntimeException("Ошибка генерации QR-кода", e); // Превращаем в unchecked-исключение
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,131 @@
+package com.example.cinema.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Готовые PNG с QR-кодами: LRU, ограниченный суммарным объёмом картинок (app.qr.cache-max-bytes).
+ * Картинка для одного и того же текста и размера всегда одинакова, поэтому повторные запросы
+ * (на входе в зал билет открывают по нескольку раз) обходятся поиском в таблице.
+ * Рендер идёт вне блокировки; при одновременных промахах картинка может отрисоваться дважды, в кэше останется одна.
+ * Метрики: qr.cache.gets{result=hit|miss}, qr.cache.evictions, qr.cache.size, qr.cache.bytes.
+ */
+@Component
+public class QrImageCache {
+
+    private static final int ENTRY_OVERHEAD = 128; // Ключ, запись LinkedHashMap, ETag — примерно
+
+    // png нельзя изменять: один массив отдаётся всем запросам
+    public record QrImage(byte[] png, String etag) {
+    }
+
+    private record Key(String text, int width, int height) {
+    }
+
+    private final long maxBytes;
+    private final Lock lock = new ReentrantLock(); // Не synchronized: не «прибиваем» виртуальные потоки
+    private final LinkedHashMap<Key, QrImage> images = new LinkedHashMap<>(256, 0.75f, true); // Порядок доступа — LRU
+    private volatile long totalBytes;
+    private volatile int size;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public QrImageCache(@Value("${app.qr.cache-max-bytes:16777216}") long maxBytes, MeterRegistry registry) {
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder("qr.cache.gets").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("qr.cache.gets").tag("result", "miss").register(registry);
+        this.evictions = Counter.builder("qr.cache.evictions").register(registry);
+        Gauge.builder("qr.cache.size", this, cache -> cache.size).register(registry);
+        Gauge.builder("qr.cache.bytes", this, cache -> cache.totalBytes).baseUnit("bytes").register(registry);
+    }
+
+    // Картинка из кэша; при промахе рисуется renderer-ом и кладётся в кэш
+    public QrImage get(String text, int width, int height, Supplier<byte[]> renderer) {
+        Key key = new Key(text, width, height);
+        QrImage image;
+        lock.lock();
+        try {
+            image = images.get(key);
+        } finally {
+            lock.unlock();
+        }
+        if (image != null) {
+            hits.increment();
+            return image;
+        }
+
+        misses.increment();
+        byte[] png = renderer.get();
+        QrImage rendered = new QrImage(png, etagOf(png));
+        long weight = weightOf(key, rendered);
+        if (weight > maxBytes) {
+            return rendered; // Не помещается даже в пустой кэш
+        }
+
+        lock.lock();
+        try {
+            QrImage existing = images.putIfAbsent(key, rendered);
+            if (existing != null) {
+                return existing; // Другой поток успел отрисовать тот же код
+            }
+            long total = totalBytes + weight;
+            // Вытесняем самые давно использованные картинки, пока не уложимся в лимит
+            Iterator<Map.Entry<Key, QrImage>> eldest = images.entrySet().iterator();
+            while (total > maxBytes && eldest.hasNext()) {
+                Map.Entry<Key, QrImage> entry = eldest.next();
+                if (entry.getKey().equals(key)) {
+                    continue;
+                }
+                total -= weightOf(entry.getKey(), entry.getValue());
+                eldest.remove();
+                evictions.increment();
+            }
+            totalBytes = total;
+            size = images.size();
+            return rendered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            images.clear();
+            totalBytes = 0;
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long weightOf(Key key, QrImage image) {
+        return image.png().length + 2L * key.text().length() + ENTRY_OVERHEAD;
+    }
+
+    // Сильный ETag — хэш самих байтов PNG: другие байты (например, после смены рендера) — другой ETag
+    private static String etagOf(byte[] png) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(png);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 есть в любой JVM
+        }
+    }
+}
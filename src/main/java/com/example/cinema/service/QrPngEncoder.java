@@ -0,0 +1,184 @@
+package com.example.cinema.service;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNG с QR-кодом прямо из матрицы модулей: чёрно-белая картинка 1 бит на пиксель (grayscale, bit depth 1).
+ * Без BufferedImage и ImageIO — строки пикселей собираются в переиспользуемом буфере и сжимаются Deflater-ом.
+ * Пиксели совпадают с QRCodeWriter + MatrixToImageWriter: та же коррекция ошибок (L), поле 4 модуля, то же масштабирование.
+ * Потокобезопасен: буферы и Deflater берутся из небольшого пула.
+ */
+public final class QrPngEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int QUIET_ZONE = 4; // Белое поле вокруг кода, в модулях (как у QRCodeWriter)
+    private static final int HEADER_LENGTH = SIGNATURE.length + 25 + 8; // Сигнатура, IHDR, заголовок IDAT
+    private static final int IEND_LENGTH = 12;
+
+    private final BlockingQueue<Workspace> pool;
+
+    public QrPngEncoder(int maxPooled) {
+        this.pool = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    public QrPngEncoder() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public byte[] encode(String text, int width, int height) throws WriterException {
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("Found empty contents");
+        }
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Requested dimensions are too small: " + width + 'x' + height);
+        }
+        ByteMatrix modules = Encoder.encode(text, ErrorCorrectionLevel.L).getMatrix();
+
+        Workspace workspace = pool.poll();
+        if (workspace == null) {
+            workspace = new Workspace();
+        }
+        try {
+            int length = workspace.write(modules, width, height);
+            return Arrays.copyOf(workspace.out, length); // Единственная аллокация под результат
+        } finally {
+            if (!pool.offer(workspace)) {
+                workspace.deflater.end(); // Пул полон — освобождаем нативную память сразу
+            }
+        }
+    }
+
+    // Буферы одного кодирования; используется одним потоком за раз
+    private static final class Workspace {
+
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final CRC32 crc = new CRC32();
+        private byte[] raw = new byte[0];  // Строки PNG: байт фильтра + пиксели
+        private byte[] line = new byte[0]; // Одна строка модулей в масштабе картинки
+        private byte[] out = new byte[0];  // Готовый файл
+
+        int write(ByteMatrix modules, int width, int height) {
+            int inputWidth = modules.getWidth();
+            int inputHeight = modules.getHeight();
+            int outputWidth = Math.max(width, inputWidth + QUIET_ZONE * 2);
+            int outputHeight = Math.max(height, inputHeight + QUIET_ZONE * 2);
+            int multiple = Math.min(outputWidth / (inputWidth + QUIET_ZONE * 2),
+                    outputHeight / (inputHeight + QUIET_ZONE * 2));
+            int leftPadding = (outputWidth - inputWidth * multiple) / 2;
+            int topPadding = (outputHeight - inputHeight * multiple) / 2;
+
+            int stride = 1 + (outputWidth + 7) / 8; // В grayscale 1 бит: 1 — белый, 0 — чёрный; старший бит слева
+            int rawLength = stride * outputHeight;
+            if (raw.length < rawLength) {
+                raw = new byte[rawLength];
+            }
+            if (line.length < stride) {
+                line = new byte[stride];
+            }
+
+            // Всё белое, фильтр None (0) в начале каждой строки
+            Arrays.fill(raw, 0, rawLength, (byte) 0xFF);
+            for (int offset = 0; offset < rawLength; offset += stride) {
+                raw[offset] = 0;
+            }
+
+            byte[][] cells = modules.getArray(); // [y][x], 1 — тёмный модуль
+            for (int y = 0; y < inputHeight; y++) {
+                Arrays.fill(line, 0, stride, (byte) 0xFF);
+                line[0] = 0;
+                for (int x = 0; x < inputWidth; x++) {
+                    if (cells[y][x] == 1) {
+                        clearBits(line, leftPadding + x * multiple, multiple);
+                    }
+                }
+                // Модуль — квадрат: одна и та же строка повторяется multiple раз
+                int offset = (topPadding + y * multiple) * stride;
+                for (int i = 0; i < multiple; i++, offset += stride) {
+                    System.arraycopy(line, 0, raw, offset, stride);
+                }
+            }
+
+            return writePng(outputWidth, outputHeight, rawLength);
+        }
+
+        private int writePng(int width, int height, int rawLength) {
+            ensureOut(HEADER_LENGTH + rawLength + rawLength / 100 + 64 + IEND_LENGTH);
+
+            System.arraycopy(SIGNATURE, 0, out, 0, SIGNATURE.length);
+            int pos = SIGNATURE.length;
+            writeInt(out, pos, 13);
+            int ihdr = pos + 4;
+            writeAscii(out, ihdr, "IHDR");
+            writeInt(out, ihdr + 4, width);
+            writeInt(out, ihdr + 8, height);
+            out[ihdr + 12] = 1; // Глубина — 1 бит
+            out[ihdr + 13] = 0; // Тип цвета — grayscale
+            out[ihdr + 14] = 0; // Сжатие deflate
+            out[ihdr + 15] = 0; // Фильтрация — стандартная
+            out[ihdr + 16] = 0; // Без чересстрочности
+            pos = writeCrc(ihdr, 4 + 13);
+
+            int idat = pos + 4;
+            writeAscii(out, idat, "IDAT");
+            deflater.reset();
+            deflater.setInput(raw, 0, rawLength);
+            deflater.finish();
+            int dataEnd = idat + 4;
+            while (!deflater.finished()) {
+                if (dataEnd == out.length - IEND_LENGTH - 4) {
+                    out = Arrays.copyOf(out, out.length * 2); // Несжимаемые данные — на практике не бывает
+                }
+                dataEnd += deflater.deflate(out, dataEnd, out.length - IEND_LENGTH - 4 - dataEnd);
+            }
+            writeInt(out, pos, dataEnd - idat - 4);
+            pos = writeCrc(idat, dataEnd - idat);
+
+            writeInt(out, pos, 0);
+            writeAscii(out, pos + 4, "IEND");
+            return writeCrc(pos + 4, 4);
+        }
+
+        // CRC по типу и данным чанка; возвращает позицию за чанком
+        private int writeCrc(int typeOffset, int length) {
+            crc.reset();
+            crc.update(out, typeOffset, length);
+            writeInt(out, typeOffset + length, (int) crc.getValue());
+            return typeOffset + length + 4;
+        }
+
+        private void ensureOut(int capacity) {
+            if (out.length < capacity) {
+                out = new byte[capacity];
+            }
+        }
+    }
+
+    // Обнуляет count бит, начиная с пикселя from (пиксели строки начинаются с line[1])
+    private static void clearBits(byte[] line, int from, int count) {
+        for (int px = from; px < from + count; px++) {
+            line[1 + (px >>> 3)] &= (byte) ~(0x80 >>> (px & 7));
+        }
+    }
+
+    private static void writeInt(byte[] buf, int pos, int value) {
+        buf[pos] = (byte) (value >>> 24);
+        buf[pos + 1] = (byte) (value >>> 16);
+        buf[pos + 2] = (byte) (value >>> 8);
+        buf[pos + 3] = (byte) value;
+    }
+
+    private static void writeAscii(byte[] buf, int pos, String type) {
+        for (int i = 0; i < type.length(); i++) {
+            buf[pos + i] = (byte) type.charAt(i);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Screening;
+import com.example.cinema.dto.KeysetPage;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.service.CatalogCache.MovieView;
+import com.example.cinema.service.CatalogCache.ScreeningView;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Расписание предстоящих сеансов в памяти, разложенное по дням: день -> фильм -> зал -> сеансы.
+ * Страница фильма и общее расписание строятся отсюда, без запросов к базе.
+ * <p>
+ * Снимок неизменяемый: читатели берут текущую ссылку без блокировок, запись собирает новую карту дней и подменяет её.
+ * После изменений в админке из базы перечитываются только затронутые дни (старый и новый день сеанса,
+ * дни с сеансами изменённого фильма или зала); у каждого пересобранного дня — новая версия ({@link DaySchedule#version()}),
+ * по ней можно строить HTTP-валидаторы. В полночь прошедший день отбрасывается, а снимок перечитывается целиком —
+ * заодно подхватываются изменения в обход админки.
+ */
+@Component
+public class ScheduleMaterializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduleMaterializer.class);
+
+    private static final Comparator<ScreeningView> BY_START =
+            Comparator.comparing(ScreeningView::startTime).thenComparing(ScreeningView::id);
+
+    // День расписания: сеансы по времени начала и они же по фильмам и залам (залы — в порядке первого сеанса)
+    public record DaySchedule(LocalDate day,
+                              long version,
+                              List<ScreeningView> screenings,
+                              Map<Long, Map<String, List<ScreeningView>>> byMovie) {
+
+        static DaySchedule of(LocalDate day, long version, List<ScreeningView> screenings) {
+            Map<Long, Map<String, List<ScreeningView>>> grouped = new LinkedHashMap<>();
+            for (ScreeningView screening : screenings) {
+                grouped.computeIfAbsent(screening.movie().id(), id -> new LinkedHashMap<>())
+                        .computeIfAbsent(screening.hall().name(), name -> new ArrayList<>())
+                        .add(screening);
+            }
+            Map<Long, Map<String, List<ScreeningView>>> byMovie = new LinkedHashMap<>();
+            grouped.forEach((movieId, halls) -> {
+                Map<String, List<ScreeningView>> frozen = new LinkedHashMap<>();
+                halls.forEach((hall, list) -> frozen.put(hall, List.copyOf(list)));
+                byMovie.put(movieId, Collections.unmodifiableMap(frozen));
+            });
+            return new DaySchedule(day, version, List.copyOf(screenings), Collections.unmodifiableMap(byMovie));
+        }
+    }
+
+    private final ScreeningRepository screeningRepository;
+    private final Lock lock = new ReentrantLock(); // Пишет один поток за раз; читатели не блокируются
+    private final AtomicLong versions = new AtomicLong(); // Сквозной номер версий дней
+    private volatile NavigableMap<LocalDate, DaySchedule> days = Collections.emptyNavigableMap();
+
+    public ScheduleMaterializer(ScreeningRepository screeningRepository) {
+        this.screeningRepository = screeningRepository;
+    }
+
+    // Весь снимок заново: при старте и в полночь
+    @PostConstruct
+    @Scheduled(cron = "${app.schedule.rollover-cron:0 0 0 * * *}")
+    public void load() {
+        lock.lock();
+        try {
+            LocalDate today = LocalDate.now();
+            Map<LocalDate, List<ScreeningView>> byDay = toViews(screeningRepository.findStartingFrom(today.atStartOfDay()))
+                    .stream()
+                    .collect(Collectors.groupingBy(s -> s.startTime().toLocalDate(), TreeMap::new, Collectors.toList()));
+            TreeMap<LocalDate, DaySchedule> next = new TreeMap<>();
+            byDay.forEach((day, screenings) -> next.put(day, DaySchedule.of(day, versions.incrementAndGet(), screenings)));
+            days = Collections.unmodifiableNavigableMap(next);
+            versions.incrementAndGet(); // Даже если дней не осталось — снимок сменился
+            logger.info("Schedule loaded: {} days, {} screenings from {}",
+                    next.size(), next.values().stream().mapToInt(d -> d.screenings().size()).sum(), today);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Дни с ещё не начавшимися сеансами фильма
+    public List<LocalDate> dates(Long movieId, LocalDateTime now) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (DaySchedule day : days.tailMap(now.toLocalDate(), true).values()) {
+            if (!screeningsByHall(day, movieId, now).isEmpty()) {
+                dates.add(day.day());
+            }
+        }
+        return dates;
+    }
+
+    // Ещё не начавшиеся сеансы фильма в этот день по залам
+    public Map<String, List<ScreeningView>> screeningsByHall(Long movieId, LocalDate day, LocalDateTime now) {
+        DaySchedule schedule = day.isBefore(now.toLocalDate()) ? null : days.get(day);
+        return schedule == null ? Map.of() : screeningsByHall(schedule, movieId, now);
+    }
+
+    // Страница расписания: сеансы по времени начала строго после сеанса (afterTime, afterId)
+    public KeysetPage<ScreeningView> page(LocalDateTime afterTime, long afterId, int size) {
+        List<ScreeningView> rows = new ArrayList<>(size + 1);
+        for (DaySchedule day : days.tailMap(afterTime.toLocalDate(), true).values()) {
+            List<ScreeningView> screenings = day.screenings();
+            int from = firstAfter(screenings, afterTime, afterId);
+            for (int i = from; i < screenings.size() && rows.size() <= size; i++) {
+                rows.add(screenings.get(i));
+            }
+            if (rows.size() > size) {
+                break;
+            }
+        }
+        return KeysetPage.of(rows, size);
+    }
+
+    // Ближайший ещё не начавшийся сеанс фильма (null — нет): до его начала страница фильма при той же версии не меняется
+    public LocalDateTime nextStart(Long movieId, LocalDateTime now) {
+        for (DaySchedule day : days.tailMap(now.toLocalDate(), true).values()) {
+            LocalDateTime next = null;
+            for (List<ScreeningView> screenings : day.byMovie().getOrDefault(movieId, Map.of()).values()) {
+                for (ScreeningView screening : screenings) {
+                    if (screening.startTime().isAfter(now) && (next == null || screening.startTime().isBefore(next))) {
+                        next = screening.startTime();
+                        break; // В зале сеансы по времени начала
+                    }
+                }
+            }
+            if (next != null) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    // День целиком (null — сеансов нет); версия дня меняется при каждой его пересборке
+    public DaySchedule day(LocalDate day) {
+        return days.get(day);
+    }
+
+    // Растёт при любой пересборке
+    public long version() {
+        return versions.get();
+    }
+
+    // Сеанс создан или изменён: пересобираем день, где он был, и день, где он теперь
+    public void screeningSaved(Screening screening) {
+        Set<LocalDate> affected = daysWith(s -> s.id().equals(screening.getId()));
+        affected.add(screening.getStartTime().toLocalDate());
+        rebuild(affected);
+    }
+
+    public void screeningDeleted(Long screeningId) {
+        rebuild(daysWith(s -> s.id().equals(screeningId)));
+    }
+
+    // Фильм изменён или удалён: его карточка есть в сеансах
+    public void movieChanged(Long movieId) {
+        rebuild(daysWith(s -> s.movie().id().equals(movieId)));
+    }
+
+    // Зал переименован
+    public void hallChanged(Long hallId) {
+        rebuild(daysWith(s -> s.hall().id().equals(hallId)));
+    }
+
+    private Set<LocalDate> daysWith(Predicate<ScreeningView> predicate) {
+        Set<LocalDate> affected = new TreeSet<>();
+        for (DaySchedule day : days.values()) {
+            if (day.screenings().stream().anyMatch(predicate)) {
+                affected.add(day.day());
+            }
+        }
+        return affected;
+    }
+
+    // Внутри транзакции — после коммита, иначе перечитали бы из базы старое
+    private void rebuild(Set<LocalDate> affected) {
+        if (affected.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuildNow(affected);
+                }
+            });
+        } else {
+            rebuildNow(affected);
+        }
+    }
+
+    private void rebuildNow(Set<LocalDate> affected) {
+        lock.lock();
+        try {
+            LocalDate today = LocalDate.now();
+            TreeMap<LocalDate, DaySchedule> next = new TreeMap<>(days.tailMap(today, true));
+            for (LocalDate day : affected) {
+                if (day.isBefore(today)) {
+                    continue;
+                }
+                List<ScreeningView> screenings = toViews(screeningRepository.findStartingBetween(
+                        day.atStartOfDay(), day.plusDays(1).atStartOfDay()));
+                if (screenings.isEmpty()) {
+                    next.remove(day);
+                    versions.incrementAndGet(); // Версии дня больше нет, но расписание изменилось
+                } else {
+                    next.put(day, DaySchedule.of(day, versions.incrementAndGet(), screenings));
+                }
+            }
+            days = Collections.unmodifiableNavigableMap(next);
+            logger.debug("Schedule days rebuilt: {}", affected);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<String, List<ScreeningView>> screeningsByHall(DaySchedule day, Long movieId, LocalDateTime now) {
+        Map<String, List<ScreeningView>> halls = day.byMovie().getOrDefault(movieId, Map.of());
+        if (day.day().isAfter(now.toLocalDate())) {
+            return halls;
+        }
+        // Сегодня — только сеансы, которые ещё не начались
+        Map<String, List<ScreeningView>> upcoming = new LinkedHashMap<>();
+        halls.forEach((hall, screenings) -> {
+            List<ScreeningView> ahead = screenings.stream().filter(s -> s.startTime().isAfter(now)).toList();
+            if (!ahead.isEmpty()) {
+                upcoming.put(hall, ahead);
+            }
+        });
+        return upcoming;
+    }
+
+    // Индекс первого сеанса строго после (afterTime, afterId) в списке по времени начала
+    private static int firstAfter(List<ScreeningView> screenings, LocalDateTime afterTime, long afterId) {
+        int lo = 0;
+        int hi = screenings.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            ScreeningView s = screenings.get(mid);
+            int cmp = s.startTime().compareTo(afterTime);
+            if (cmp < 0 || (cmp == 0 && s.id() <= afterId)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static List<ScreeningView> toViews(List<Screening> screenings) {
+        Map<Long, MovieView> movies = new HashMap<>(); // Одна карточка фильма на все его сеансы
+        return screenings.stream()
+                .map(s -> ScreeningView.of(s, movies.computeIfAbsent(s.getMovie().getId(), id -> MovieView.of(s.getMovie()))))
+                .sorted(BY_START)
+                .toList();
+    }
+}
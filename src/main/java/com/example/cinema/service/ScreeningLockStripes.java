@@ -0,0 +1,33 @@
+package com.example.cinema.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок для операций с местами.
+ * Сеанс всегда попадает на одну и ту же блокировку, а разные сеансы почти всегда — на разные,
+ * поэтому продажи на разные сеансы не ждут друг друга.
+ */
+@Component
+public class ScreeningLockStripes {
+
+    private final Lock[] stripes;
+    private final int mask;
+
+    public ScreeningLockStripes() {
+        // Степень двойки с запасом относительно числа ядер
+        int size = Integer.highestOneBit(Math.max(16, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1;
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public Lock lockFor(long screeningId) {
+        long h = screeningId * 0x9E3779B97F4A7C15L; // Перемешиваем биты, чтобы соседние id не попадали в соседние полосы
+        return stripes[(int) (h >>> 32) & mask];
+    }
+}
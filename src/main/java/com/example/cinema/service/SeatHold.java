@@ -0,0 +1,62 @@
+package com.example.cinema.service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Временное удержание мест между выбором и оплатой.
+ * Состояние меняется только под блокировкой сеанса.
+ */
+public final class SeatHold {
+
+    enum State { ACTIVE, EXPIRED, RELEASED, CONVERTED }
+
+    private final String id;           // Идентификатор брони, передаётся в форме оплаты
+    private final long screeningId;
+    private final List<String> seats;  // Удерживаемые места
+    private final String owner;        // Кто поставил бронь (пользователь или сессия гостя); только он может её снять
+    private final Instant expiresAt;
+    private volatile State state = State.ACTIVE;
+
+    SeatHold(String id, long screeningId, List<String> seats, String owner, Instant expiresAt) {
+        this.id = id;
+        this.screeningId = screeningId;
+        this.seats = List.copyOf(seats);
+        this.owner = owner;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isActive() {
+        return state == State.ACTIVE;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    // getters
+
+    public String getId() {
+        return id;
+    }
+
+    public long getScreeningId() {
+        return screeningId;
+    }
+
+    public List<String> getSeats() {
+        return seats;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Screening;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Временные брони мест на время оплаты.
+ * Бронь ставится при переходе к оплате и превращается в билеты в {@link SeatReservationService}.
+ * Истёкшие брони снимаются пачкой по тикам {@link HashedTimingWheel}, без таймера на каждую бронь.
+ */
+@Service
+public class SeatHoldService {
+
+    private static final long TICK_MILLIS = 1_000; // Шаг колеса таймеров
+    private static final int WHEEL_SIZE = 512;     // Один оборот колеса — чуть больше 8 минут
+
+    public static final int MAX_GROUP_SIZE = 10;   // Сколько мест рядом можно подобрать за раз
+
+    private final SeatInventoryService seatInventory;
+    private final ScreeningLockStripes lockStripes;
+    private final Duration holdTtl; // Сколько держим места до оплаты
+
+    private final ConcurrentMap<String, SeatHold> holds = new ConcurrentHashMap<>(); // holdId -> бронь
+    private final HashedTimingWheel<SeatHold> expirations =
+            new HashedTimingWheel<>(TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+
+    public SeatHoldService(SeatInventoryService seatInventory,
+                           ScreeningLockStripes lockStripes,
+                           @Value("${app.booking.hold-ttl:PT10M}") Duration holdTtl) {
+        this.seatInventory = seatInventory;
+        this.lockStripes = lockStripes;
+        this.holdTtl = holdTtl;
+    }
+
+    // Удерживает все места или ни одного; owner — кто держит бронь (см. {@link #release(String, String)})
+    public SeatHold place(Screening screening, List<String> seats, String owner) {
+        List<String> requested = List.copyOf(new LinkedHashSet<>(seats));
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("No seats selected");
+        }
+
+        Lock lock = lockStripes.lockFor(screening.getId());
+        lock.lock();
+        try {
+            SeatMap seatMap = seatInventory.getSeatMap(screening);
+
+            int[] indexes = seatMap.indexesOf(requested); // Метки разбираем один раз, дальше работаем с индексами
+            List<String> taken = new ArrayList<>();
+            for (int i = 0; i < indexes.length; i++) {
+                String seat = requested.get(i);
+                if (seatMap.isUnavailable(indexes[i])) {
+                    taken.add(seat);
+                }
+            }
+            if (!taken.isEmpty()) {
+                throw new SeatsUnavailableException(taken);
+            }
+
+            return hold(screening, requested, owner);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * «Лучшие N мест рядом»: подбор блока и удержание — один шаг под блокировкой сеанса,
+     * поэтому найденные места никто не перехватит. Нет такого блока — SeatsUnavailableException.
+     */
+    public SeatHold placeBestAvailable(Screening screening, int count, String owner) {
+        if (count < 1 || count > MAX_GROUP_SIZE) {
+            throw new IllegalArgumentException("Seats count must be between 1 and " + MAX_GROUP_SIZE);
+        }
+
+        Lock lock = lockStripes.lockFor(screening.getId());
+        lock.lock();
+        try {
+            SeatMap seatMap = seatInventory.getSeatMap(screening);
+            int[] indexes = BestAvailableAllocator.allocate(seatMap, count);
+            if (indexes == null) {
+                throw new SeatsUnavailableException(List.of());
+            }
+            List<String> seats = new ArrayList<>(count);
+            for (int index : indexes) {
+                seats.add(seatMap.getLayout().labelOf(index));
+            }
+            return hold(screening, seats, owner);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вызывается под блокировкой сеанса, места уже проверены
+    private SeatHold hold(Screening screening, List<String> seats, String owner) {
+        Instant expiresAt = Instant.now().plus(holdTtl);
+        SeatHold hold = new SeatHold(UUID.randomUUID().toString(), screening.getId(), seats, owner, expiresAt);
+        seatInventory.markHeld(screening.getId(), seats);
+        holds.put(hold.getId(), hold);
+        expirations.schedule(hold, expiresAt.toEpochMilli());
+        return hold;
+    }
+
+    // Активная бронь по id (для проверки при оплате)
+    public Optional<SeatHold> find(String holdId) {
+        if (holdId == null || holdId.isBlank()) {
+            return Optional.empty();
+        }
+        SeatHold hold = holds.get(holdId);
+        return hold != null && hold.isActive() ? Optional.of(hold) : Optional.empty();
+    }
+
+    // Покупатель передумал — отпускаем места сразу, не дожидаясь истечения. Чужую бронь не трогаем: false
+    public boolean release(String holdId, String owner) {
+        SeatHold hold = holdId != null ? holds.get(holdId) : null;
+        if (hold == null || !Objects.equals(hold.getOwner(), owner)) {
+            return false;
+        }
+        finish(hold, SeatHold.State.RELEASED);
+        return true;
+    }
+
+    // Вызывается под блокировкой сеанса, когда бронь превращена в билеты
+    void markConverted(SeatHold hold) {
+        if (hold.isActive()) {
+            hold.setState(SeatHold.State.CONVERTED);
+            holds.remove(hold.getId());
+            seatInventory.markHoldReleased(hold.getScreeningId(), hold.getSeats(), false);
+        }
+    }
+
+    // Каждый тик забираем из колеса все истёкшие брони разом
+    @Scheduled(fixedRate = TICK_MILLIS)
+    public void expireHolds() {
+        for (SeatHold hold : expirations.advance(System.currentTimeMillis())) {
+            finish(hold, SeatHold.State.EXPIRED);
+        }
+    }
+
+    private void finish(SeatHold hold, SeatHold.State state) {
+        Lock lock = lockStripes.lockFor(hold.getScreeningId());
+        lock.lock();
+        try {
+            if (hold.isActive()) { // Бронь могла быть уже оплачена или отменена
+                hold.setState(state);
+                holds.remove(hold.getId());
+                seatInventory.markHoldReleased(hold.getScreeningId(), hold.getSeats(), state == SeatHold.State.EXPIRED);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Screening;
+import com.example.cinema.repo.TicketRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Кэш занятости мест по сеансам.
+ * Карта сеанса загружается из базы один раз, дальше обновляется кодом, который продаёт и отменяет билеты.
+ * Каждое изменение получает новую версию и рассылается подписчикам через {@link SeatMapBroadcaster}.
+ * Загрузка и изменения карты идут под блокировкой сеанса ({@link ScreeningLockStripes}), а не внутри
+ * compute у ConcurrentHashMap: запрос к базе под synchronized-корзиной «прибил» бы виртуальный поток к носителю.
+ * Удерживаемые места в базе не хранятся, поэтому учитываются здесь же, отдельно от карт:
+ * после сброса карты ({@link #evict(Long)}) загрузка возвращает их на место.
+ */
+@Service
+public class SeatInventoryService {
+
+    private final TicketRepository ticketRepository;
+    private final HallLayoutCache hallLayouts;
+    private final ScreeningLockStripes lockStripes;
+    private final SeatMapBroadcaster broadcaster;
+    private final ConcurrentMap<Long, SeatMap> seatMaps = new ConcurrentHashMap<>(); // screeningId -> карта мест
+    private final ConcurrentMap<Long, Set<String>> heldSeats = new ConcurrentHashMap<>(); // screeningId -> удерживаемые места
+
+    // Общий счётчик версий: начинаем с текущего времени, чтобы версии не повторялись после перезапуска
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis());
+
+    public SeatInventoryService(TicketRepository ticketRepository,
+                                HallLayoutCache hallLayouts,
+                                ScreeningLockStripes lockStripes,
+                                SeatMapBroadcaster broadcaster) {
+        this.ticketRepository = ticketRepository;
+        this.hallLayouts = hallLayouts;
+        this.lockStripes = lockStripes;
+        this.broadcaster = broadcaster;
+    }
+
+    // Карта мест сеанса; при первом обращении загружается из базы
+    public SeatMap getSeatMap(Screening screening) {
+        SeatMap map = seatMaps.get(screening.getId());
+        if (map != null) {
+            return map;
+        }
+        Lock lock = lockStripes.lockFor(screening.getId());
+        lock.lock();
+        try {
+            map = seatMaps.get(screening.getId()); // Пока ждали блокировку, карту мог загрузить другой поток
+            if (map == null) {
+                map = load(screening);
+                seatMaps.put(screening.getId(), map);
+            }
+            return map;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Подписка на изменения карты сеанса (Server-Sent Events).
+     * Канал создаётся под той же блокировкой, под которой публикуются изменения карты,
+     * поэтому ни одно событие после версии карты не теряется.
+     */
+    public SseEmitter subscribe(Screening screening, long lastVersion) {
+        Lock lock = lockStripes.lockFor(screening.getId());
+        lock.lock();
+        try {
+            SeatMap map = getSeatMap(screening);
+            return broadcaster.subscribe(screening.getId(), lastVersion, map.getVersion());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Уже загруженная карта (без обращения к базе)
+    public Optional<SeatMap> findLoaded(Long screeningId) {
+        return Optional.ofNullable(seatMaps.get(screeningId));
+    }
+
+    // Вызывается после того, как билеты сохранены в базе
+    public void markOccupied(Long screeningId, Collection<String> seats) {
+        apply(screeningId, seats, SeatMap::occupy, SeatMapEvent.Type.TAKEN);
+    }
+
+    // Вызывается после того, как билет удалён из базы
+    public void markReleased(Long screeningId, String seat) {
+        apply(screeningId, List.of(seat), SeatMap::release, SeatMapEvent.Type.RELEASED);
+    }
+
+    // Временно удержать места до оплаты
+    public void markHeld(Long screeningId, Collection<String> seats) {
+        heldSeats.computeIfAbsent(screeningId, id -> ConcurrentHashMap.newKeySet()).addAll(seats);
+        apply(screeningId, seats, SeatMap::hold, SeatMapEvent.Type.HELD);
+    }
+
+    // Места сеанса, удерживаемые до оплаты (их, как и проданные, нельзя убрать из схемы зала)
+    public Set<String> heldSeats(Long screeningId) {
+        return Set.copyOf(heldSeats.getOrDefault(screeningId, Set.of()));
+    }
+
+    // Снять удержание: expired — бронь истекла, иначе оплачена или отменена
+    public void markHoldReleased(Long screeningId, Collection<String> seats, boolean expired) {
+        heldSeats.computeIfPresent(screeningId, (id, held) -> {
+            held.removeAll(seats);
+            return held.isEmpty() ? null : held;
+        });
+        apply(screeningId, seats, SeatMap::releaseHold,
+                expired ? SeatMapEvent.Type.HOLD_EXPIRED : SeatMapEvent.Type.HOLD_RELEASED);
+    }
+
+    // Сбросить карту сеанса (сеанс изменён или удалён, билеты удалены в обход сервиса)
+    public void evict(Long screeningId) {
+        Lock lock = lockStripes.lockFor(screeningId);
+        lock.lock();
+        try {
+            if (seatMaps.remove(screeningId) != null) {
+                broadcaster.reset(screeningId, versions.incrementAndGet()); // Подписчики перечитают карту целиком
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void evictAll() {
+        new ArrayList<>(seatMaps.keySet()).forEach(this::evict);
+    }
+
+    // Раз в минуту убираем карты сеансов, которые уже начались
+    @Scheduled(fixedDelay = 60_000)
+    public void evictStarted() {
+        LocalDateTime now = LocalDateTime.now();
+        seatMaps.values().removeIf(map -> {
+            if (map.hasStarted(now)) {
+                broadcaster.close(map.getScreeningId()); // На начавшийся сеанс билеты уже не продаются
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private interface SeatMutation {
+        boolean apply(SeatMap map, String seat); // true — если место действительно изменилось
+    }
+
+    private void apply(Long screeningId, Collection<String> seats, SeatMutation mutation, SeatMapEvent.Type type) {
+        // Под блокировкой сеанса: параллельная загрузка карты не потеряет изменение,
+        // а версии событий одной карты идут по порядку. Продажа и брони уже держат эту блокировку
+        Lock lock = lockStripes.lockFor(screeningId);
+        lock.lock();
+        try {
+            SeatMap map = seatMaps.get(screeningId);
+            if (map == null) {
+                return; // Карта не загружена — изменение будет прочитано из базы при загрузке
+            }
+            List<String> changed = new ArrayList<>(seats.size());
+            for (String seat : seats) {
+                if (mutation.apply(map, seat)) {
+                    changed.add(seat);
+                }
+            }
+            if (!changed.isEmpty()) {
+                long version = versions.incrementAndGet();
+                map.setVersion(version);
+                broadcaster.publish(screeningId, new SeatMapEvent(version, type, changed));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private SeatMap load(Screening screening) {
+        SeatMap map = new SeatMap(screening.getId(), screening.getStartTime(), hallLayouts.layoutOf(screening.getHall()));
+        List<String> seats = ticketRepository.findSeatsByScreeningId(screening.getId()); // Только метки мест, без сущностей
+        seats.forEach(map::occupy);
+        heldSeats.getOrDefault(screening.getId(), Set.of()).forEach(map::hold); // Брони, живые на момент сброса карты
+        map.setVersion(versions.incrementAndGet());
+        return map;
+    }
+}
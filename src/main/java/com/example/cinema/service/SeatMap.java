@@ -0,0 +1,174 @@
+package com.example.cinema.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Карта занятости мест одного сеанса.
+ * Места адресуются плотными индексами {@link HallLayout}. Каждый ряд хранится в одном long:
+ * бит с номером позиции места в ряду установлен, если место продано (occupied)
+ * или временно удерживается покупателем до оплаты (held).
+ */
+public final class SeatMap {
+
+    private final long screeningId;          // Сеанс, к которому относится карта
+    private final LocalDateTime startTime;   // Время начала — после него карта больше не нужна
+    private final HallLayout layout;         // Схема зала сеанса
+    private final AtomicLongArray occupied;  // Проданные места, по одному слову на ряд
+    private final AtomicLongArray held;      // Места, удерживаемые до оплаты
+    private volatile long version;           // Версия карты, растёт при каждом изменении
+
+    SeatMap(long screeningId, LocalDateTime startTime, HallLayout layout) {
+        this.screeningId = screeningId;
+        this.startTime = startTime;
+        this.layout = layout;
+        this.occupied = new AtomicLongArray(layout.getRows());
+        this.held = new AtomicLongArray(layout.getRows());
+    }
+
+    public boolean isOccupied(int index) {
+        return test(occupied, index);
+    }
+
+    public boolean isOccupied(String seatLabel) {
+        int index = layout.indexOf(seatLabel);
+        return index >= 0 && isOccupied(index);
+    }
+
+    public boolean isHeld(int index) {
+        return test(held, index);
+    }
+
+    public boolean isHeld(String seatLabel) {
+        int index = layout.indexOf(seatLabel);
+        return index >= 0 && isHeld(index);
+    }
+
+    // Место продано или кем-то удерживается
+    public boolean isUnavailable(int index) {
+        return isOccupied(index) || isHeld(index);
+    }
+
+    // Есть ли такое место в зале
+    public boolean hasSeat(String seatLabel) {
+        return layout.indexOf(seatLabel) >= 0;
+    }
+
+    // Индексы мест по меткам; неизвестная метка — IllegalArgumentException
+    public int[] indexesOf(List<String> seatLabels) {
+        int[] indexes = new int[seatLabels.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = layout.indexOf(seatLabels.get(i));
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("Unknown seat: " + seatLabels.get(i));
+            }
+        }
+        return indexes;
+    }
+
+    public int occupiedCount() {
+        int count = 0;
+        for (int i = 0; i < occupied.length(); i++) {
+            count += Long.bitCount(occupied.get(i));
+        }
+        return count;
+    }
+
+    /**
+     * Компактное представление занятости для API: ряды подряд, на ряд (columns + 7) / 8 байт,
+     * место на позиции c ряда — бит c % 8 байта c / 8 (младший бит первый).
+     */
+    public byte[] encodeOccupied() {
+        return encode(occupied);
+    }
+
+    public byte[] encodeHeld() {
+        return encode(held);
+    }
+
+    private byte[] encode(AtomicLongArray bits) {
+        int bytesPerRow = (layout.getColumns() + 7) / 8;
+        byte[] out = new byte[layout.getRows() * bytesPerRow];
+        for (int r = 0; r < layout.getRows(); r++) {
+            long word = bits.get(r);
+            for (int b = 0; b < bytesPerRow; b++) {
+                out[r * bytesPerRow + b] = (byte) (word >>> (b * 8));
+            }
+        }
+        return out;
+    }
+
+    // Помечает место занятым; false — если место уже было занято или метка некорректна
+    boolean occupy(String seatLabel) {
+        return set(occupied, layout.indexOf(seatLabel));
+    }
+
+    // Освобождает место; false — если оно и так было свободно
+    boolean release(String seatLabel) {
+        return clear(occupied, layout.indexOf(seatLabel));
+    }
+
+    boolean hold(String seatLabel) {
+        return set(held, layout.indexOf(seatLabel));
+    }
+
+    boolean releaseHold(String seatLabel) {
+        return clear(held, layout.indexOf(seatLabel));
+    }
+
+    // Позиции ряда, которые сейчас нельзя предложить: проданные и удерживаемые места
+    long unavailableMask(int row) {
+        return occupied.get(row - 1) | held.get(row - 1);
+    }
+
+    boolean hasStarted(LocalDateTime now) {
+        return startTime != null && !startTime.isAfter(now);
+    }
+
+    private boolean test(AtomicLongArray bits, int index) {
+        return (bits.get(layout.rowOf(index) - 1) & bit(index)) != 0;
+    }
+
+    private boolean set(AtomicLongArray bits, int index) {
+        if (index < 0) {
+            return false;
+        }
+        long mask = bit(index);
+        return (bits.getAndAccumulate(layout.rowOf(index) - 1, mask, (prev, m) -> prev | m) & mask) == 0;
+    }
+
+    private boolean clear(AtomicLongArray bits, int index) {
+        if (index < 0) {
+            return false;
+        }
+        long mask = bit(index);
+        return (bits.getAndAccumulate(layout.rowOf(index) - 1, mask, (prev, m) -> prev & ~m) & mask) != 0;
+    }
+
+    private long bit(int index) {
+        return 1L << layout.columnOf(index);
+    }
+
+    // getters
+
+    public long getScreeningId() {
+        return screeningId;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public HallLayout getLayout() {
+        return layout;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.cinema.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка изменений карты мест по Server-Sent Events.
+ * На каждый сеанс — один канал: событие сериализуется один раз и уходит всем подписчикам канала.
+ * Канал помнит последние события, поэтому переподключившийся клиент получает только пропущенное.
+ */
+@Service
+public class SeatMapBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatMapBroadcaster.class);
+
+    private static final int HISTORY_SIZE = 256;                 // Сколько последних событий храним для догона
+    private static final long EMITTER_TIMEOUT_MILLIS = 30 * 60_000L; // Потом браузер сам переподключится
+
+    private final ObjectMapper objectMapper;
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>(); // screeningId -> канал
+    private final ExecutorService dispatcher;
+
+    public SeatMapBroadcaster(ObjectMapper objectMapper,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.objectMapper = objectMapper;
+        // Запись в медленный сокет блокирует поток: на виртуальных потоках это ничего не стоит,
+        // на платформенных ограничиваемся небольшим пулом. Порядок событий канала держит очередь, а не поток
+        this.dispatcher = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("seat-events-", 0).factory())
+                : Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+                        new CustomizableThreadFactory("seat-events-"));
+    }
+
+    /**
+     * Подписка на изменения карты сеанса.
+     * Вызывается из {@link SeatInventoryService} под блокировкой карты, поэтому mapVersion
+     * и создание канала согласованы с публикацией событий.
+     * lastVersion — версия, которую клиент уже видел (версия карты при отрисовке или Last-Event-ID).
+     */
+    SseEmitter subscribe(long screeningId, long lastVersion, long mapVersion) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        Subscriber subscriber = new Subscriber(emitter);
+        Channel channel = channels.compute(screeningId, (id, existing) -> {
+            Channel c = existing != null ? existing : new Channel(id, mapVersion);
+            c.attached.incrementAndGet(); // Пока счётчик не ноль, канал не удаляется как простаивающий
+            return c;
+        });
+        emitter.onCompletion(() -> channel.detach(subscriber));
+        emitter.onTimeout(() -> channel.detach(subscriber));
+        emitter.onError(e -> channel.detach(subscriber));
+        channel.enqueue(new Subscribe(subscriber, lastVersion));
+        return emitter;
+    }
+
+    // Вызывается под блокировкой карты — только кладёт событие в очередь канала
+    void publish(long screeningId, SeatMapEvent event) {
+        Channel channel = channels.get(screeningId);
+        if (channel != null) { // Нет канала — значит, никто и не подписан
+            channel.enqueue(new Publish(event));
+        }
+    }
+
+    // Карта перечитана из базы: история больше не годится, клиенты загружают карту заново
+    void reset(long screeningId, long version) {
+        publish(screeningId, new SeatMapEvent(version, SeatMapEvent.Type.RESET, List.of()));
+    }
+
+    // Сеанс начался или удалён — закрываем все подписки
+    void close(long screeningId) {
+        Channel channel = channels.remove(screeningId);
+        if (channel != null) {
+            channel.enqueue(new Close());
+        }
+    }
+
+    // Комментарий раз в 20 секунд держит соединения открытыми и выявляет отвалившихся клиентов.
+    // Заодно убираем каналы без подписчиков: при следующей подписке канал создастся заново
+    @Scheduled(fixedRate = 20_000)
+    public void heartbeat() {
+        for (Long screeningId : channels.keySet()) {
+            Channel channel = channels.computeIfPresent(screeningId, (id, c) -> c.attached.get() == 0 ? null : c);
+            if (channel != null) {
+                channel.enqueue(new Heartbeat());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private String toJson(SeatMapEvent event) {
+        try {
+            return objectMapper.writeValueAsString(Map.of("v", event.version(), "seats", event.seats()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize seat map event", e);
+        }
+    }
+
+    // Действия канала выполняются строго по очереди в пуле dispatcher
+    private sealed interface Action permits Publish, Subscribe, Heartbeat, Close {
+    }
+
+    private record Publish(SeatMapEvent event) implements Action {
+    }
+
+    private record Subscribe(Subscriber subscriber, long lastVersion) implements Action {
+    }
+
+    private record Heartbeat() implements Action {
+    }
+
+    private record Close() implements Action {
+    }
+
+    // Подписчик канала; gone защищает от повторного отключения (timeout и completion приходят оба)
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean gone = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private final class Channel {
+
+        private final long screeningId;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final AtomicInteger attached = new AtomicInteger(); // Подписчики, включая ещё не обработанные
+        private final Queue<Action> actions = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // Дальше идут поля, с которыми работает только поток, обрабатывающий очередь
+        private final Deque<SentEvent> history = new ArrayDeque<>(HISTORY_SIZE);
+        private long baseline; // События с версией <= baseline в истории уже не восстановить
+
+        private Channel(long screeningId, long baseline) {
+            this.screeningId = screeningId;
+            this.baseline = baseline;
+        }
+
+        void enqueue(Action action) {
+            actions.add(action);
+            if (scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Action action;
+                while ((action = actions.poll()) != null) {
+                    try {
+                        handle(action);
+                    } catch (RuntimeException e) {
+                        logger.warn("Seat map event dispatch failed for screening {}", screeningId, e);
+                    }
+                }
+                scheduled.set(false);
+                // Если пока снимали флаг кто-то добавил действие, а другой поток не запущен — продолжаем сами
+            } while (!actions.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+
+        private void handle(Action action) {
+            if (action instanceof Publish publish) {
+                SeatMapEvent event = publish.event();
+                if (event.type() == SeatMapEvent.Type.RESET) {
+                    history.clear();
+                    baseline = event.version();
+                }
+                SentEvent sent = new SentEvent(event, toJson(event)); // Один JSON на всех подписчиков
+                remember(sent);
+                subscribers.forEach(subscriber -> send(subscriber, sent));
+            } else if (action instanceof Subscribe subscribe) {
+                Subscriber subscriber = subscribe.subscriber();
+                if (subscribe.lastVersion() < baseline) {
+                    // Пропущенных событий уже нет в истории — пусть клиент перечитает карту
+                    SeatMapEvent reset = new SeatMapEvent(baseline, SeatMapEvent.Type.RESET, List.of());
+                    send(subscriber, new SentEvent(reset, toJson(reset)));
+                } else {
+                    for (SentEvent sent : history) {
+                        if (sent.event().version() > subscribe.lastVersion()) {
+                            send(subscriber, sent);
+                        }
+                    }
+                }
+                if (!subscriber.gone.get()) {
+                    subscribers.add(subscriber);
+                }
+            } else if (action instanceof Heartbeat) {
+                for (Subscriber subscriber : subscribers) {
+                    try {
+                        subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                    } catch (IOException | IllegalStateException e) {
+                        drop(subscriber);
+                    }
+                }
+            } else if (action instanceof Close) {
+                for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+                    subscriber.emitter.complete();
+                    detach(subscriber);
+                }
+            }
+        }
+
+        private void remember(SentEvent sent) {
+            if (history.size() == HISTORY_SIZE) {
+                baseline = history.removeFirst().event().version();
+            }
+            history.addLast(sent);
+        }
+
+        private void send(Subscriber subscriber, SentEvent sent) {
+            try {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(sent.event().version()))
+                        .name(sent.event().type().eventName())
+                        .data(sent.json(), MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                drop(subscriber); // Клиент ушёл
+            }
+        }
+
+        private void drop(Subscriber subscriber) {
+            detach(subscriber);
+            try {
+                subscriber.emitter.completeWithError(new IOException("Subscriber disconnected"));
+            } catch (IllegalStateException ignored) {
+                // Соединение уже закрыто
+            }
+        }
+
+        void detach(Subscriber subscriber) {
+            subscribers.remove(subscriber);
+            if (subscriber.gone.compareAndSet(false, true)) {
+                attached.decrementAndGet();
+            }
+        }
+    }
+
+    private record SentEvent(SeatMapEvent event, String json) {
+    }
+}
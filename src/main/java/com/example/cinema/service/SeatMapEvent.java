@@ -0,0 +1,29 @@
+package com.example.cinema.service;
+
+import java.util.List;
+
+/**
+ * Изменение карты мест сеанса, которое рассылается подписчикам страницы бронирования.
+ * version совпадает с версией карты после изменения и служит id события в SSE.
+ */
+public record SeatMapEvent(long version, Type type, List<String> seats) {
+
+    public enum Type {
+        TAKEN("taken"),                 // Место продано
+        RELEASED("released"),           // Билет отменён, место свободно
+        HELD("held"),                   // Место удерживается покупателем
+        HOLD_EXPIRED("hold-expired"),   // Удержание истекло
+        HOLD_RELEASED("hold-released"), // Удержание снято (оплачено или отменено)
+        RESET("reset");                 // Карта перечитана из базы — клиенту нужно загрузить её заново
+
+        private final String eventName;
+
+        Type(String eventName) {
+            this.eventName = eventName;
+        }
+
+        public String eventName() {
+            return eventName;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.AppUser;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.domain.Ticket;
+import com.example.cinema.repo.TicketRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Атомарное бронирование нескольких мест: либо сохраняются все билеты, либо ни одного.
+ * Проверка мест и коммит выполняются под блокировкой сеанса, уникальный индекс (screening_id, seat)
+ * в базе — последняя страховка. Места, удерживаемые бронью покупателя ({@link SeatHold}), считаются его.
+ */
+@Service
+public class SeatReservationService {
+
+    private final TicketRepository ticketRepository;
+    private final SeatInventoryService seatInventory;
+    private final SeatHoldService holdService;
+    private final ScreeningLockStripes lockStripes;
+    private final TransactionTemplate transactionTemplate;
+    private final QrCodeService qrCodeService;
+    private final EmailOutboxService emailOutbox;
+
+    public SeatReservationService(TicketRepository ticketRepository,
+                                  SeatInventoryService seatInventory,
+                                  SeatHoldService holdService,
+                                  ScreeningLockStripes lockStripes,
+                                  TransactionTemplate transactionTemplate,
+                                  QrCodeService qrCodeService,
+                                  EmailOutboxService emailOutbox) {
+        this.ticketRepository = ticketRepository;
+        this.seatInventory = seatInventory;
+        this.holdService = holdService;
+        this.lockStripes = lockStripes;
+        this.transactionTemplate = transactionTemplate;
+        this.qrCodeService = qrCodeService;
+        this.emailOutbox = emailOutbox;
+    }
+
+    public List<Ticket> reserve(Screening screening,
+                                AppUser user,
+                                String customerName,
+                                String email,
+                                List<String> seats,
+                                String holdId,
+                                String holdOwner) {
+
+        List<String> requested = List.copyOf(new LinkedHashSet<>(seats)); // Убираем повторы, сохраняя порядок
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("No seats selected");
+        }
+
+        Lock lock = lockStripes.lockFor(screening.getId());
+        lock.lock();
+        try {
+            SeatMap seatMap = seatInventory.getSeatMap(screening);
+
+            // Бронь покупателя (если ещё не истекла и поставлена им же) — её места можно выкупать
+            SeatHold hold = holdService.find(holdId)
+                    .filter(h -> h.getScreeningId() == screening.getId())
+                    .filter(h -> Objects.equals(h.getOwner(), holdOwner))
+                    .orElse(null);
+            Set<String> ownHeld = hold != null ? Set.copyOf(hold.getSeats()) : Set.of();
+
+            // Быстрая проверка по карте мест: если что-то занято — сразу отказ, без обращения к базе
+            int[] indexes = seatMap.indexesOf(requested); // Метки разбираем один раз, дальше работаем с индексами
+            List<String> taken = new ArrayList<>();
+            for (int i = 0; i < indexes.length; i++) {
+                String seat = requested.get(i);
+                if (seatMap.isOccupied(indexes[i]) || (seatMap.isHeld(indexes[i]) && !ownHeld.contains(seat))) {
+                    taken.add(seat);
+                }
+            }
+            if (!taken.isEmpty()) {
+                throw new SeatsUnavailableException(taken);
+            }
+
+            List<Ticket> tickets = new ArrayList<>(requested.size());
+            for (String seat : requested) {
+                Ticket ticket = new Ticket();
+                ticket.setScreening(screening);
+                ticket.setUser(user); // null для гостя
+                ticket.setCustomerName(customerName);
+                ticket.setSeat(seat);
+                ticket.setEmail(email);
+                tickets.add(ticket);
+            }
+
+            List<Ticket> saved;
+            try {
+                // Коммит внутри блокировки: после unlock места уже видны всем.
+                // Все билеты корзины уходят в базу одним batch-insert (см. hibernate.jdbc.batch_size)
+                // Токен подписывается id билета, а id выдаётся при сохранении: токены уходят отдельным batch-update.
+                // Письмо с билетами ставится в очередь в той же транзакции — без билетов не будет и письма
+                saved = transactionTemplate.execute(status -> {
+                    List<Ticket> persisted = ticketRepository.saveAll(tickets);
+                    for (Ticket ticket : persisted) {
+                        ticket.setQrToken(qrCodeService.createTicketToken(ticket));
+                    }
+                    emailOutbox.enqueueTickets(email, persisted);
+                    return persisted;
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Карта мест разошлась с базой (например, билет добавлен в обход сервиса) — перечитаем её
+                seatInventory.evict(screening.getId());
+                List<String> conflicts = ticketRepository.findTakenSeats(screening.getId(), requested);
+                throw new SeatsUnavailableException(conflicts.isEmpty() ? requested : conflicts);
+            }
+
+            seatInventory.markOccupied(screening.getId(), requested);
+            if (hold != null) {
+                holdService.markConverted(hold); // Места выкуплены — снимаем удержание
+            }
+            return saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
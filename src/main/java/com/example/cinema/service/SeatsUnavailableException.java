@@ -0,0 +1,18 @@
+package com.example.cinema.service;
+
+import java.util.List;
+
+// Бросается, когда хотя бы одно из запрошенных мест уже занято — бронь не создаётся целиком
+public class SeatsUnavailableException extends RuntimeException {
+
+    private final List<String> seats; // Места, которые оказались заняты
+
+    public SeatsUnavailableException(List<String> seats) {
+        super("Seats already taken: " + seats);
+        this.seats = List.copyOf(seats);
+    }
+
+    public List<String> getSeats() {
+        return seats;
+    }
+}
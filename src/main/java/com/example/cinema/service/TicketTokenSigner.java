@@ -0,0 +1,174 @@
+package com.example.cinema.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Подписанные токены билетов: id билета, id сеанса и срок действия + HMAC-SHA256.
+ * Подлинность проверяется без базы, чистым вычислением. Ключей несколько (app.tickets.signing-keys = "id:ключ,..."):
+ * подписываем активным (app.tickets.active-key-id), проверяем любым из списка — так ключи можно менять,
+ * не обесценивая уже выданные билеты.
+ * <p>
+ * Формат (до base64url): версия, id ключа, varint id билета, varint id сеанса,
+ * срок — 4 байта секунд эпохи, первые 12 байт HMAC. Итог — около 32 символов.
+ * Место в токен не входит: индекс в схеме зала меняется вместе со схемой, а место билета знает база.
+ * Токены версии 1 несли ещё varint индекса места — они по-прежнему проверяются, индекс пропускается.
+ */
+@Component
+public class TicketTokenSigner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketTokenSigner.class);
+
+    private static final byte FORMAT_VERSION = 2;
+    private static final byte FORMAT_WITH_SEAT = 1; // Прежний формат, с индексом места
+    private static final int MAC_LENGTH = 12; // 96 бит подписи достаточно для билета
+    private static final int MAX_PAYLOAD = 2 + 10 + 10 + 5 + 4; // С запасом на индекс места версии 1
+    private static final String ALGORITHM = "HmacSHA256";
+
+    // Содержимое проверенного токена
+    public record Claims(long ticketId, long screeningId, Instant expiresAt, int keyId) {
+    }
+
+    private final Map<Integer, Mac> keys = new HashMap<>(); // id ключа -> настроенный образец Mac (клонируется на вызов)
+    private final int activeKeyId;
+
+    public TicketTokenSigner(@Value("${app.tickets.signing-keys:}") String signingKeys,
+                             @Value("${app.tickets.active-key-id:0}") int activeKeyId) {
+        for (String entry : signingKeys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int colon = entry.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("app.tickets.signing-keys: ожидается id:ключ, получено '" + entry.strip() + "'");
+            }
+            int id = Integer.parseInt(entry.substring(0, colon).strip());
+            if (id < 0 || id > 255) {
+                throw new IllegalArgumentException("app.tickets.signing-keys: id ключа должен быть от 0 до 255");
+            }
+            byte[] secret = Base64.getUrlDecoder().decode(entry.substring(colon + 1).strip());
+            if (secret.length < 16) {
+                throw new IllegalArgumentException("app.tickets.signing-keys: ключ " + id + " короче 16 байт");
+            }
+            keys.put(id, newMac(secret));
+        }
+        if (keys.isEmpty()) {
+            // Без настроенных ключей токены переживут только текущий запуск
+            logger.warn("app.tickets.signing-keys is not set, using a random key; issued tickets will not verify after restart");
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            keys.put(activeKeyId, newMac(secret));
+        }
+        if (!keys.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("app.tickets.active-key-id: ключа " + activeKeyId + " нет в app.tickets.signing-keys");
+        }
+        this.activeKeyId = activeKeyId;
+    }
+
+    public String sign(long ticketId, long screeningId, Instant expiresAt) {
+        byte[] token = new byte[MAX_PAYLOAD + MAC_LENGTH];
+        token[0] = FORMAT_VERSION;
+        token[1] = (byte) activeKeyId;
+        int pos = writeVarLong(token, 2, ticketId);
+        pos = writeVarLong(token, pos, screeningId);
+        long seconds = expiresAt.getEpochSecond();
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            token[pos++] = (byte) (seconds >>> shift);
+        }
+        byte[] mac = mac(activeKeyId, token, pos);
+        System.arraycopy(mac, 0, token, pos, MAC_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(token, pos + MAC_LENGTH));
+    }
+
+    // Пусто — токен не в этом формате, ключ неизвестен или подпись не сходится. Срок действия не проверяется
+    public Optional<Claims> verify(String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (bytes.length < 2 + 2 + 4 + MAC_LENGTH || bytes.length > MAX_PAYLOAD + MAC_LENGTH
+                || (bytes[0] != FORMAT_VERSION && bytes[0] != FORMAT_WITH_SEAT)) {
+            return Optional.empty();
+        }
+        int keyId = bytes[1] & 0xFF;
+        if (!keys.containsKey(keyId)) {
+            return Optional.empty();
+        }
+        int payloadLength = bytes.length - MAC_LENGTH;
+        byte[] expected = Arrays.copyOf(mac(keyId, bytes, payloadLength), MAC_LENGTH);
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(bytes, payloadLength, bytes.length))) {
+            return Optional.empty();
+        }
+
+        // Подпись верна — значит, и разбор полей не упадёт на мусоре, но границы всё равно проверяем
+        long[] fields = new long[bytes[0] == FORMAT_WITH_SEAT ? 3 : 2];
+        int pos = 2;
+        for (int i = 0; i < fields.length; i++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= payloadLength || shift > 63) {
+                    return Optional.empty();
+                }
+                b = bytes[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            fields[i] = value;
+        }
+        if (payloadLength - pos != 4) {
+            return Optional.empty();
+        }
+        long seconds = 0;
+        for (int i = 0; i < 4; i++) {
+            seconds = (seconds << 8) | (bytes[pos++] & 0xFF);
+        }
+        return Optional.of(new Claims(fields[0], fields[1], Instant.ofEpochSecond(seconds), keyId));
+    }
+
+    private byte[] mac(int keyId, byte[] data, int length) {
+        try {
+            Mac mac = (Mac) keys.get(keyId).clone(); // Mac не потокобезопасен; клон дешевле нового init
+            mac.update(data, 0, length);
+            return mac.doFinal();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Mac newMac(byte[] secret) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int writeVarLong(byte[] buf, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+        return pos;
+    }
+}
@@ -0,0 +1,94 @@
+// Подсказки в строке поиска: запрос на каждое нажатие (с небольшой паузой), ответ — короткий JSON
+document.addEventListener('DOMContentLoaded', function () {
+    const input = document.querySelector('.search-bar input[data-autocomplete]');
+    if (!input) {
+        return;
+    }
+    const list = input.parentElement.querySelector('.search-suggestions');
+    const apiUrl = input.dataset.autocomplete;
+    const movieUrl = input.dataset.movieUrl;
+    let timer = null;
+    let controller = null; // Прерываем устаревший запрос, чтобы поздний ответ не перетёр свежий
+    let active = -1;
+
+    function hide() {
+        list.hidden = true;
+        list.innerHTML = '';
+        active = -1;
+    }
+
+    function render(items) {
+        list.innerHTML = '';
+        items.forEach(item => {
+            const li = document.createElement('li');
+            const link = document.createElement('a');
+            link.href = movieUrl + item.id;
+            link.textContent = item.title;
+            li.appendChild(link);
+            const meta = [item.director, item.upcoming > 0 ? 'сеансов: ' + item.upcoming : null]
+                .filter(Boolean).join(' · ');
+            if (meta) {
+                const small = document.createElement('span');
+                small.className = 'search-suggestions__meta';
+                small.textContent = meta;
+                li.appendChild(small);
+            }
+            list.appendChild(li);
+        });
+        list.hidden = items.length === 0;
+        active = -1;
+    }
+
+    function highlight(index) {
+        const items = list.querySelectorAll('li');
+        if (items.length === 0) {
+            return;
+        }
+        active = (index + items.length) % items.length;
+        items.forEach((li, i) => li.classList.toggle('active', i === active));
+    }
+
+    input.addEventListener('input', function () {
+        clearTimeout(timer);
+        const q = input.value.trim();
+        if (q.length === 0) {
+            hide();
+            return;
+        }
+        timer = setTimeout(() => {
+            if (controller) {
+                controller.abort();
+            }
+            controller = new AbortController();
+            fetch(apiUrl + '?q=' + encodeURIComponent(q), {signal: controller.signal})
+                .then(response => response.ok ? response.json() : [])
+                .then(render)
+                .catch(error => {
+                    if (error.name !== 'AbortError') {
+                        hide();
+                    }
+                });
+        }, 80);
+    });
+
+    input.addEventListener('keydown', function (e) {
+        if (list.hidden) {
+            return;
+        }
+        if (e.key === 'ArrowDown' || e.key === 'ArrowUp') {
+            e.preventDefault();
+            highlight(active + (e.key === 'ArrowDown' ? 1 : -1));
+        } else if (e.key === 'Enter' && active >= 0) {
+            e.preventDefault();
+            list.querySelectorAll('li a')[active].click();
+        } else if (e.key === 'Escape') {
+            hide();
+        }
+    });
+
+    document.addEventListener('click', function (e) {
+        if (!input.parentElement.contains(e.target)) {
+            hide();
+        }
+    });
+});
@@ -0,0 +1,63 @@
+// «Показать ещё»: следующая страница списка подгружается без перезагрузки и дописывается в конец.
+// Ссылка data-load-more="имя" ведёт на следующую страницу, элементы лежат в контейнере data-page-items="имя".
+// Без JS ссылка просто открывает следующую страницу; с JS — срабатывает сама, когда доскроллили до неё
+document.addEventListener('DOMContentLoaded', function () {
+    const links = document.querySelectorAll('[data-load-more]');
+    if (links.length === 0) {
+        return;
+    }
+
+    const observer = 'IntersectionObserver' in window
+        ? new IntersectionObserver(entries => entries
+            .filter(entry => entry.isIntersecting)
+            .forEach(entry => load(entry.target)), {rootMargin: '200px'})
+        : null;
+
+    function load(link) {
+        if (link.dataset.loading) {
+            return; // Страница уже грузится
+        }
+        link.dataset.loading = 'true';
+        const name = link.dataset.loadMore;
+
+        fetch(link.getAttribute('href'), {headers: {'X-Requested-With': 'XMLHttpRequest'}})
+            .then(response => {
+                if (!response.ok) {
+                    throw new Error('HTTP ' + response.status);
+                }
+                return response.text();
+            })
+            .then(html => {
+                const page = new DOMParser().parseFromString(html, 'text/html');
+                const source = page.querySelector('[data-page-items="' + name + '"]');
+                const target = document.querySelector('[data-page-items="' + name + '"]');
+                if (source && target) {
+                    Array.from(source.children).forEach(item => target.appendChild(document.adoptNode(item)));
+                }
+                const next = page.querySelector('[data-load-more="' + name + '"]');
+                if (next) {
+                    link.setAttribute('href', next.getAttribute('href'));
+                    delete link.dataset.loading;
+                } else {
+                    // Это была последняя страница
+                    if (observer) {
+                        observer.unobserve(link);
+                    }
+                    link.remove();
+                }
+            })
+            .catch(() => {
+                delete link.dataset.loading; // Повторим по клику
+            });
+    }
+
+    links.forEach(link => {
+        link.addEventListener('click', function (e) {
+            e.preventDefault();
+            load(link);
+        });
+        if (observer) {
+            observer.observe(link);
+        }
+    });
+});
@@ -0,0 +1,186 @@
+package com.example.cinema.controller;
+
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.service.HallLayout;
+import com.example.cinema.service.SeatInventoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Карта мест по API: совпавший с версией карты If-None-Match — 304 без тела.
+ * Поток изменений: переподключившийся клиент получает только пропущенные события (Last-Event-ID),
+ * а отставший дальше сохранённой истории или сброса карты — событие reset.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:seat-map-api-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "app.mail.outbox.poll-interval=PT1H"
+})
+@AutoConfigureMockMvc
+class SeatMapApiControllerTest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private SeatInventoryService seatInventory;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private HallRepository hallRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Test
+    void unchangedSeatMapIsNotModified() throws Exception {
+        Screening screening = screening();
+        String etag = mvc.perform(get("/api/screenings/{id}/seats", screening.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals("W/\"" + version(screening) + "\"", etag);
+
+        mvc.perform(get("/api/screenings/{id}/seats", screening.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Место продано — версия и ETag сменились, старый ETag больше не совпадает
+        long taken = occupy(screening, "1-1");
+        mvc.perform(get("/api/screenings/{id}/seats", screening.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"" + taken + "\""));
+    }
+
+    @Test
+    void reconnectReplaysOnlyMissedEvents() throws Exception {
+        Screening screening = screening();
+        MvcResult first = subscribe(screening, version(screening)); // Канал сеанса создаётся первой подпиской
+
+        long taken1 = occupy(screening, "1-1");
+        long taken2 = occupy(screening, "1-2");
+        long taken3 = occupy(screening, "1-3");
+        assertEquals(List.of(taken1, taken2, taken3), eventIds(await(first, "id:" + taken3)));
+
+        String replay = await(subscribe(screening, taken1), "id:" + taken3);
+        assertEquals(List.of(taken2, taken3), eventIds(replay));
+        assertTrue(replay.contains("event:taken"));
+        assertTrue(replay.contains("\"1-2\""));
+        assertFalse(replay.contains("\"1-1\""));
+    }
+
+    @Test
+    void clientBehindBaselineGetsReset() throws Exception {
+        Screening screening = screening();
+        MvcResult first = subscribe(screening, version(screening));
+        long taken = occupy(screening, "1-1");
+
+        // Карта перечитана из базы — история до сброса больше не годится
+        seatInventory.evict(screening.getId());
+        String stream = await(first, "event:reset");
+        List<Long> ids = eventIds(stream);
+        long reset = ids.get(ids.size() - 1);
+
+        String behind = await(subscribe(screening, taken), "event:reset");
+        assertEquals(List.of(reset), eventIds(behind));
+        assertFalse(behind.contains("event:taken"));
+
+        // Клиент, видевший сброс, получает события после него без повторного reset
+        MvcResult current = subscribe(screening, reset);
+        long next = occupy(screening, "1-2");
+        String after = await(current, "id:" + next);
+        assertFalse(after.contains("event:reset"));
+
+        // История ограничена: кто отстал больше чем на неё, тоже получает reset
+        for (int i = 0; i < 150; i++) {
+            hold(screening, "2-1", true);
+            hold(screening, "2-1", false);
+        }
+        long last = version(screening);
+        await(first, "id:" + last);
+        assertTrue(await(subscribe(screening, next), "event:reset").contains("event:reset"));
+        assertEquals(List.of(last), eventIds(await(subscribe(screening, last - 1), "id:" + last)));
+    }
+
+    private MvcResult subscribe(Screening screening, long lastEventId) throws Exception {
+        return mvc.perform(get("/api/screenings/{id}/seats/events", screening.getId())
+                        .header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    // События рассылаются в фоне — ждём, пока нужное дойдёт до клиента
+    private static String await(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            String content = result.getResponse().getContentAsString();
+            if (content.contains(expected)) {
+                return content;
+            }
+            Thread.sleep(10);
+        }
+        return fail("No '" + expected + "' in: " + result.getResponse().getContentAsString());
+    }
+
+    private static List<Long> eventIds(String stream) {
+        Matcher matcher = EVENT_ID.matcher(stream);
+        return matcher.results().map(m -> Long.parseLong(m.group(1))).toList();
+    }
+
+    private long occupy(Screening screening, String seat) {
+        seatInventory.markOccupied(screening.getId(), List.of(seat));
+        return version(screening);
+    }
+
+    private void hold(Screening screening, String seat, boolean held) {
+        if (held) {
+            seatInventory.markHeld(screening.getId(), List.of(seat));
+        } else {
+            seatInventory.markHoldReleased(screening.getId(), List.of(seat), false);
+        }
+    }
+
+    private long version(Screening screening) {
+        return seatInventory.getSeatMap(screening).getVersion();
+    }
+
+    private Screening screening() {
+        Movie movie = new Movie();
+        movie.setTitle("Карта мест");
+        movieRepository.save(movie);
+        Hall hall = hallRepository.save(new Hall("Map " + System.nanoTime(), HallLayout.uniform(2, 4)));
+        return screeningRepository.save(
+                new Screening(movie, LocalDateTime.now().plusDays(1), hall, new BigDecimal("300")));
+    }
+}
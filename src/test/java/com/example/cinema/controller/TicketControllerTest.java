@@ -0,0 +1,117 @@
+package com.example.cinema.controller;
+
+import com.example.cinema.domain.AppUser;
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.domain.Ticket;
+import com.example.cinema.repo.AppUserRepository;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.repo.TicketRepository;
+import com.example.cinema.service.HallLayout;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * QR-код билета: отдаётся с сильным ETag и долгим кэшированием, совпавший If-None-Match — 304 без тела.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ticket-controller-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "app.mail.outbox.poll-interval=PT1H"
+})
+class TicketControllerTest {
+
+    @Autowired
+    private TicketController controller;
+
+    @Autowired
+    private AppUserRepository userRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private HallRepository hallRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Test
+    void matchingEtagReturnsNotModified() {
+        AppUser owner = userRepository.save(new AppUser("qr" + System.nanoTime(), "x", "Владелец"));
+        Ticket ticket = ticket(owner);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(owner.getUsername(), "",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+        ResponseEntity<byte[]> first = controller.getTicketQr(ticket.getId(), authentication, request(null));
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNotNull(first.getBody());
+        String etag = first.getHeaders().getETag();
+        assertTrue(etag.startsWith("\""), etag); // Сильный ETag
+        assertTrue(first.getHeaders().getCacheControl().contains("immutable"));
+
+        ResponseEntity<byte[]> second = controller.getTicketQr(ticket.getId(), authentication, request(etag));
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+
+        ResponseEntity<byte[]> stale = controller.getTicketQr(ticket.getId(), authentication, request("\"stale\""));
+        assertEquals(HttpStatus.OK, stale.getStatusCode());
+
+        // Чужой билет не отдаётся, даже с правильным ETag
+        AppUser stranger = userRepository.save(new AppUser("qr" + System.nanoTime(), "x", "Чужой"));
+        Authentication strangerAuthentication = new UsernamePasswordAuthenticationToken(stranger.getUsername(), "",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+        assertEquals(HttpStatus.FORBIDDEN,
+                controller.getTicketQr(ticket.getId(), strangerAuthentication, request(etag)).getStatusCode());
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tickets/qr/1");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+    private Ticket ticket(AppUser owner) {
+        Movie movie = new Movie();
+        movie.setTitle("QR");
+        movieRepository.save(movie);
+        Hall hall = hallRepository.save(new Hall("QR " + System.nanoTime(), HallLayout.uniform(1, 1)));
+        Screening screening = screeningRepository.save(
+                new Screening(movie, LocalDateTime.now().plusDays(1), hall, new BigDecimal("300")));
+        Ticket ticket = new Ticket();
+        ticket.setScreening(screening);
+        ticket.setUser(owner);
+        ticket.setSeat("1-1");
+        ticket.setCustomerName(owner.getFullName());
+        ticket.setQrToken(UUID.randomUUID().toString());
+        return ticketRepository.save(ticket);
+    }
+}
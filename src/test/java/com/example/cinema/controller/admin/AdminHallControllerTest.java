@@ -0,0 +1,148 @@
+package com.example.cinema.controller.admin;
+
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.domain.Ticket;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.repo.TicketRepository;
+import com.example.cinema.service.HallLayout;
+import com.example.cinema.service.SeatHoldService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка схемы зала при сохранении: некорректная схема и повтор названия отклоняются,
+ * из схемы нельзя убрать проданные и удерживаемые места, принятая схема сохраняется нормализованной.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:admin-hall-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "app.mail.outbox.poll-interval=PT1H"
+})
+class AdminHallControllerTest {
+
+    @Autowired
+    private AdminHallController controller;
+
+    @Autowired
+    private HallRepository hallRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private SeatHoldService holdService;
+
+    @BeforeEach
+    void signInAsAdmin() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin", "", AuthorityUtils.createAuthorityList("ROLE_ADMIN")));
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void savesNormalizedLayout() {
+        String name = "Малый " + System.nanoTime();
+        Hall hall = new Hall("  " + name + " ", " s_s \n\n vvw ");
+        BindingResult errors = errors(hall);
+
+        assertEquals("redirect:/admin/halls", controller.create(hall, errors));
+        assertFalse(errors.hasErrors());
+        Hall saved = hallRepository.findByName(name).orElseThrow();
+        assertEquals("S_S\nVVW", saved.getLayout());
+    }
+
+    @Test
+    void rejectsInvalidLayoutAndDuplicateName() {
+        Hall existing = hallRepository.save(new Hall("Дубль " + System.nanoTime(), HallLayout.uniform(2, 2)));
+
+        Hall invalid = new Hall("Новый " + System.nanoTime(), "SSX");
+        BindingResult invalidErrors = errors(invalid);
+        assertEquals("admin/halls/form", controller.create(invalid, invalidErrors));
+        assertEquals("hall.layout.invalid", invalidErrors.getFieldError("layout").getCode());
+
+        Hall wide = new Hall("Широкий " + System.nanoTime(), "S".repeat(HallLayout.MAX_COLUMNS + 1));
+        BindingResult wideErrors = errors(wide);
+        assertEquals("admin/halls/form", controller.create(wide, wideErrors));
+        assertTrue(wideErrors.hasFieldErrors("layout"));
+
+        Hall duplicate = new Hall(existing.getName(), HallLayout.uniform(1, 1));
+        BindingResult duplicateErrors = errors(duplicate);
+        assertEquals("admin/halls/form", controller.create(duplicate, duplicateErrors));
+        assertEquals("hall.name.duplicate", duplicateErrors.getFieldError("name").getCode());
+
+        // Своё же название при редактировании — не повтор
+        Hall renamed = new Hall(existing.getName(), HallLayout.uniform(3, 3));
+        BindingResult renamedErrors = errors(renamed);
+        assertEquals("redirect:/admin/halls", controller.update(existing.getId(), renamed, renamedErrors));
+        assertFalse(renamedErrors.hasErrors());
+    }
+
+    @Test
+    void keepsSoldAndHeldSeats() {
+        Hall hall = hallRepository.save(new Hall("Большой " + System.nanoTime(), HallLayout.uniform(3, 4)));
+        Screening screening = screening(hall);
+        Ticket ticket = new Ticket();
+        ticket.setScreening(screening);
+        ticket.setSeat("3-4");
+        ticket.setCustomerName("Зритель");
+        ticketRepository.save(ticket);
+        holdService.place(screening, List.of("2-4"), "session:test");
+
+        // Без третьего ряда и четвёртых мест пропали бы и проданное, и удерживаемое место
+        Hall smaller = new Hall(hall.getName(), HallLayout.uniform(2, 3));
+        BindingResult errors = errors(smaller);
+        assertEquals("admin/halls/form", controller.update(hall.getId(), smaller, errors));
+        assertEquals("hall.layout.soldSeats", errors.getFieldError("layout").getCode());
+        assertTrue(errors.getFieldError("layout").getDefaultMessage().endsWith("2-4, 3-4"));
+        assertEquals(HallLayout.uniform(3, 4), hallRepository.findById(hall.getId()).orElseThrow().getLayout());
+
+        // Места можно добавить и перенумеровать соседние, пока проданные и удерживаемые остаются в схеме
+        Hall wider = new Hall(hall.getName(), "SSSS_S\nSSSS\nVVVV");
+        BindingResult widerErrors = errors(wider);
+        assertEquals("redirect:/admin/halls", controller.update(hall.getId(), wider, widerErrors));
+        assertFalse(widerErrors.hasErrors());
+    }
+
+    private static BindingResult errors(Hall hall) {
+        return new BeanPropertyBindingResult(hall, "hall");
+    }
+
+    private Screening screening(Hall hall) {
+        Movie movie = new Movie();
+        movie.setTitle("Залы");
+        movieRepository.save(movie);
+        return screeningRepository.save(
+                new Screening(movie, LocalDateTime.now().plusDays(1), hall, new BigDecimal("300")));
+    }
+}
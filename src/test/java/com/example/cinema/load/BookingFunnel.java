@@ -0,0 +1,151 @@
+package com.example.cinema.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Воронка покупки глазами браузера гостя: страница бронирования → карта мест (JSON)
+ * → удержание случайных свободных мест → оплата. Зал должен быть прямоугольным (HallLayout.uniform).
+ * Запоминает, какие места подтверждены покупателям, чтобы поймать двойную продажу.
+ */
+final class BookingFunnel {
+
+    static final String PAGE = "book-page";
+    static final String SEATS = "seat-map";
+    static final String HOLD = "hold";
+    static final String PAY = "pay";
+
+    private static final Pattern HOLD_ID = Pattern.compile("name=\"holdId\" value=\"([^\"]+)\"");
+
+    private final LoadClient client;
+    private final ObjectMapper objectMapper;
+    private final long screeningId;
+    private final int rows;
+    private final int seatsPerRow;
+    private final int maxSeatsPerOrder;
+
+    private final Map<String, AtomicInteger> confirmedSeats = new ConcurrentHashMap<>(); // Место -> сколько раз «продано»
+    private final AtomicInteger completed = new AtomicInteger();
+
+    BookingFunnel(LoadClient client, ObjectMapper objectMapper, long screeningId,
+                  int rows, int seatsPerRow, int maxSeatsPerOrder) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.screeningId = screeningId;
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.maxSeatsPerOrder = maxSeatsPerOrder;
+    }
+
+    // Один проход воронки; false — если в зале больше нет свободных мест
+    boolean run() {
+        HttpResponse<String> page = client.get(PAGE, "/tickets/book/" + screeningId);
+        if (page == null || page.statusCode() != 200) {
+            return true;
+        }
+
+        HttpResponse<String> seatMap = client.get(SEATS, "/api/screenings/" + screeningId + "/seats");
+        if (seatMap == null || seatMap.statusCode() != 200) {
+            return true;
+        }
+        List<String> seats = pickFreeSeats(seatMap.body());
+        if (seats == null) {
+            return false;
+        }
+        if (seats.isEmpty()) {
+            return true; // Всё свободное сейчас удерживают другие — пробуем ещё раз
+        }
+        String seatsParam = String.join(",", seats);
+
+        HttpResponse<String> hold = client.post(HOLD, "/tickets/book", Map.of(
+                "screening.id", Long.toString(screeningId),
+                "customerName", "Load",
+                "selectedSeats", seatsParam));
+        if (hold == null || hold.statusCode() != 200) {
+            return true; // 302 на ?occupied — места перехватили
+        }
+        Matcher holdId = HOLD_ID.matcher(hold.body());
+        if (!holdId.find()) {
+            client.stats(HOLD).error();
+            return true;
+        }
+
+        // Бронь выкупает только её владелец — платим в той же сессии гостя, в которой её поставили
+        HttpResponse<String> pay = client.post(PAY, "/tickets/pay", Map.of(
+                "screeningId", Long.toString(screeningId),
+                "customerName", "Load",
+                "selectedSeats", seatsParam,
+                "email", "load@example.com",
+                "holdId", holdId.group(1)), LoadClient.session(hold));
+        if (pay == null || pay.statusCode() != 200) {
+            return true;
+        }
+        for (String seat : seats) {
+            confirmedSeats.computeIfAbsent(seat, s -> new AtomicInteger()).incrementAndGet();
+        }
+        completed.incrementAndGet();
+        return true;
+    }
+
+    int completed() {
+        return completed.get();
+    }
+
+    int confirmedSeats() {
+        return confirmedSeats.size();
+    }
+
+    // Места, подтверждённые больше чем одному покупателю
+    long oversold() {
+        return confirmedSeats.values().stream().filter(count -> count.get() > 1).count();
+    }
+
+    // Случайные свободные места из ответа /seats; null — зал распродан
+    private List<String> pickFreeSeats(String json) {
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(json);
+        } catch (IOException e) {
+            return List.of();
+        }
+        byte[] sold = Base64.getDecoder().decode(payload.get("occupied").asText());
+        byte[] held = Base64.getDecoder().decode(payload.get("held").asText());
+        int bytesPerRow = (payload.get("columns").asInt() + 7) / 8;
+
+        List<String> free = new ArrayList<>();
+        int soldCount = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < seatsPerRow; c++) {
+                int index = r * bytesPerRow + c / 8;
+                int bit = 1 << (c % 8);
+                if ((sold[index] & bit) != 0) {
+                    soldCount++;
+                } else if ((held[index] & bit) == 0) {
+                    free.add((r + 1) + "-" + (c + 1)); // Зал прямоугольный: позиция c — место c + 1
+                }
+            }
+        }
+        if (soldCount == rows * seatsPerRow) {
+            return null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int wanted = Math.min(free.size(), 1 + random.nextInt(maxSeatsPerOrder));
+        List<String> picked = new ArrayList<>(wanted);
+        for (int i = 0; i < wanted; i++) {
+            picked.add(free.remove(random.nextInt(free.size())));
+        }
+        return picked;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.cinema.load;
+
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.service.HallLayout;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный тест воронки покупки: «распродажа» одного сеанса.
+ * Все виртуальные покупатели стартуют одновременно и проходят шаги
+ * страница бронирования → карта мест → удержание мест → оплата, пока зал не распродан.
+ * Отчёт (пропускная способность, p50/p99/p999 по шагам, перепроданные места) пишется в JSON
+ * в target/load-test, чтобы сравнивать прогоны между релизами.
+ * <p>
+ * Запуск: {@code mvn -P load-test test}; параметры — системные свойства load.* (см. поля ниже).
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.thymeleaf.cache=true",
+        "logging.level.org.springframework=WARN",
+        "logging.level.com.example.cinema=INFO"
+})
+class BookingFunnelLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingFunnelLoadTest.class);
+
+    private static final int USERS = Integer.getInteger("load.users", 200);                  // Виртуальные покупатели
+    private static final int ROWS = Integer.getInteger("load.rows", 20);                     // Размер зала
+    private static final int SEATS_PER_ROW = Integer.getInteger("load.seatsPerRow", 30);
+    private static final int MAX_SEATS_PER_ORDER = Integer.getInteger("load.maxSeatsPerOrder", 4);
+    private static final int MAX_ATTEMPTS = Integer.getInteger("load.attemptsPerUser", 50);  // Попыток на покупателя
+    static final Path REPORT_DIR = Path.of(System.getProperty("load.reportDir", "target/load-test"));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private HallRepository hallRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Письма собираются целиком, но никуда не отправляются
+    @TestConfiguration
+    static class NoSmtp {
+
+        @Bean
+        JavaMailSender javaMailSender() {
+            return new LoadTestMailSender(0);
+        }
+    }
+
+    @Test
+    void flashSaleDoesNotOversell() throws Exception {
+        long screeningId = createScreening();
+        LoadClient client = new LoadClient(port);
+        BookingFunnel funnel = new BookingFunnel(client, objectMapper, screeningId, ROWS, SEATS_PER_ROW, MAX_SEATS_PER_ORDER);
+
+        ExecutorService users = Executors.newFixedThreadPool(USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < USERS; i++) {
+            users.execute(() -> {
+                try {
+                    start.await();
+                    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                        if (!funnel.run()) {
+                            break; // Свободных мест не осталось
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        long startedNanos = System.nanoTime();
+        start.countDown();
+        users.shutdown();
+        assertTrue(users.awaitTermination(10, TimeUnit.MINUTES), "Load test did not finish in time");
+        long elapsedNanos = System.nanoTime() - startedNanos;
+
+        Integer soldInDb = jdbcTemplate.queryForObject(
+                "select count(*) from tickets where screening_id = ?", Integer.class, screeningId);
+        Integer duplicatedInDb = jdbcTemplate.queryForObject(
+                "select count(*) from (select seat from tickets where screening_id = ? group by seat having count(*) > 1)",
+                Integer.class, screeningId);
+
+        Path report = writeReport(client, funnel, elapsedNanos, soldInDb, duplicatedInDb);
+        logger.info("Load test report: {}", report.toAbsolutePath());
+
+        assertEquals(0, funnel.oversold(), "Seats confirmed to more than one buyer");
+        assertEquals(0, duplicatedInDb, "Duplicate tickets in the database");
+        assertEquals(funnel.confirmedSeats(), soldInDb, "Every confirmed seat must have exactly one ticket");
+        assertTrue(soldInDb <= ROWS * SEATS_PER_ROW, "More tickets than seats");
+    }
+
+    private long createScreening() {
+        Movie movie = new Movie();
+        movie.setTitle("Premiere");
+        movie = movieRepository.save(movie);
+        Hall hall = hallRepository.save(new Hall("Load", HallLayout.uniform(ROWS, SEATS_PER_ROW)));
+        Screening screening = new Screening(movie, LocalDateTime.now().plusDays(1), hall, new BigDecimal("500"));
+        return screeningRepository.save(screening).getId();
+    }
+
+    private Path writeReport(LoadClient client,
+                             BookingFunnel funnel,
+                             long elapsedNanos,
+                             int soldInDb,
+                             int duplicatedInDb) throws IOException {
+
+        double seconds = elapsedNanos / 1e9;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenario", "booking-funnel-flash-sale");
+        report.put("finishedAt", Instant.now().toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("virtualUsers", USERS);
+        report.put("hallSeats", ROWS * SEATS_PER_ROW);
+        report.put("maxSeatsPerOrder", MAX_SEATS_PER_ORDER);
+        report.put("durationSeconds", LatencyStats.round(seconds));
+
+        Map<String, LatencyStats> stats = client.allStats();
+        long requests = stats.values().stream().mapToLong(LatencyStats::requests).sum();
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("requestsPerSecond", LatencyStats.round(requests / seconds));
+        throughput.put("completedFunnelsPerSecond", LatencyStats.round(funnel.completed() / seconds));
+        throughput.put("ticketsPerSecond", LatencyStats.round(soldInDb / seconds));
+        report.put("throughput", throughput);
+
+        Map<String, Object> steps = new LinkedHashMap<>();
+        stats.forEach((step, s) -> steps.put(step, s.summary(seconds)));
+        report.put("steps", steps);
+
+        Map<String, Object> seats = new LinkedHashMap<>();
+        seats.put("completedFunnels", funnel.completed());
+        seats.put("confirmedToBuyers", funnel.confirmedSeats());
+        seats.put("ticketsInDatabase", soldInDb);
+        seats.put("duplicateTicketsInDatabase", duplicatedInDb);
+        seats.put("oversold", funnel.oversold());
+        report.put("seats", seats);
+
+        Files.createDirectories(REPORT_DIR);
+        Path file = REPORT_DIR.resolve("booking-funnel.json");
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        return file;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.cinema.load;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Задержки и исходы одного шага нагрузочного сценария
+final class LatencyStats {
+
+    private long[] latencies = new long[1024]; // Наносекунды, по одной на запрос
+    private int size;
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong(); // Места заняты — ожидаемый исход при распродаже
+    private final AtomicLong errors = new AtomicLong();
+
+    void record(long nanos, int status) {
+        synchronized (this) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+        }
+        if (status == 200) {
+            ok.incrementAndGet();
+        } else if (status == 302) {
+            rejected.incrementAndGet();
+        } else {
+            errors.incrementAndGet();
+        }
+    }
+
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    synchronized int requests() {
+        return size;
+    }
+
+    long errors() {
+        return errors.get();
+    }
+
+    Map<String, Object> summary(double seconds) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(latencies, size);
+        }
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", sorted.length);
+        summary.put("ok", ok.get());
+        summary.put("rejected", rejected.get());
+        summary.put("errors", errors.get());
+        summary.put("throughputPerSecond", round(sorted.length / seconds));
+        summary.put("p50Millis", percentile(sorted, 0.50));
+        summary.put("p99Millis", percentile(sorted, 0.99));
+        summary.put("p999Millis", percentile(sorted, 0.999));
+        summary.put("maxMillis", sorted.length == 0 ? 0 : round(sorted[sorted.length - 1] / 1e6));
+        return summary;
+    }
+
+    // Перцентиль по ближайшему рангу, в миллисекундах
+    static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p * sorted.length);
+        return round(sorted[Math.max(rank, 1) - 1] / 1e6);
+    }
+
+    static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
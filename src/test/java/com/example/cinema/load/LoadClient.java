@@ -0,0 +1,86 @@
+package com.example.cinema.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// HTTP-клиент нагрузочных тестов: каждый запрос записывается в статистику своего шага
+final class LoadClient {
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER) // Редирект на ?occupied — это отказ, его надо видеть
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private Map<String, LatencyStats> stats = new LinkedHashMap<>(); // Шаг -> статистика, в порядке появления
+
+    LoadClient(int port) {
+        this.baseUrl = "http://localhost:" + port;
+    }
+
+    HttpResponse<String> get(String step, String path) {
+        return send(step, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build());
+    }
+
+    HttpResponse<String> post(String step, String path, Map<String, String> form) {
+        return post(step, path, form, null);
+    }
+
+    // cookie — сессия покупателя ("JSESSIONID=..."), null — без сессии
+    HttpResponse<String> post(String step, String path, Map<String, String> form, String cookie) {
+        String body = form.entrySet().stream()
+                .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        return send(step, request.build());
+    }
+
+    // Сессия, которую открыл ответ (Set-Cookie), в виде значения заголовка Cookie; null — не открывал
+    static String session(HttpResponse<?> response) {
+        return response.headers().firstValue("Set-Cookie").map(c -> c.split(";", 2)[0]).orElse(null);
+    }
+
+    synchronized LatencyStats stats(String step) {
+        return stats.computeIfAbsent(step, s -> new LatencyStats());
+    }
+
+    synchronized Map<String, LatencyStats> allStats() {
+        return new LinkedHashMap<>(stats);
+    }
+
+    // Начать замер заново (после прогрева)
+    synchronized void resetStats() {
+        stats = new LinkedHashMap<>();
+    }
+
+    // Выполняет запрос и записывает задержку; null — сетевая ошибка
+    private HttpResponse<String> send(String step, HttpRequest request) {
+        LatencyStats stepStats = stats(step);
+        long started = System.nanoTime();
+        try {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            stepStats.record(System.nanoTime() - started, response.statusCode());
+            return response;
+        } catch (IOException e) {
+            stepStats.record(System.nanoTime() - started, -1);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.cinema.load;
+
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+// Письма собираются целиком, но вместо SMTP — только пауза, как у медленного почтового сервера
+final class LoadTestMailSender extends JavaMailSenderImpl {
+
+    private final long sendDelayMillis;
+
+    LoadTestMailSender(long sendDelayMillis) {
+        this.sendDelayMillis = sendDelayMillis;
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+        if (sendDelayMillis > 0) {
+            try {
+                Thread.sleep(sendDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.cinema.load;
+
+import com.example.cinema.domain.Movie;
+import com.example.cinema.service.MovieSearchIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: запросы к {@link MovieSearchIndex} на синтетическом каталоге (названия из случайных слов).
+ * Отчёт — target/load-test/movie-search-benchmark.json.
+ * <p>
+ * Запуск: {@code mvn -P load-test test -Dtest=MovieSearchBenchmarkTest}.
+ */
+@Tag("load")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovieSearchBenchmarkTest {
+
+    private static final String[] WORDS = {
+            "ночь", "город", "тень", "звезда", "море", "последний", "тайна", "война", "любовь", "дорога",
+            "зима", "солнце", "остров", "брат", "сестра", "огонь", "небо", "память", "лес", "река",
+            "король", "охота", "побег", "дом", "сердце", "время", "путь", "ветер", "маска", "легенда"};
+    private static final String[] GENRES = {"драма", "комедия", "фантастика", "триллер", "мелодрама", "боевик"};
+    private static final String[] COUNTRIES = {"Россия", "США", "Франция", "Италия", "Япония", "Корея"};
+
+    @Param({"100000"})
+    public int movies;
+
+    private MovieSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Movie> catalog = new ArrayList<>(movies);
+        for (int i = 0; i < movies; i++) {
+            Movie movie = new Movie();
+            movie.setId((long) i + 1);
+            movie.setTitle(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i);
+            movie.setGenre(GENRES[random.nextInt(GENRES.length)]);
+            movie.setDirector("Режиссёр " + random.nextInt(5000));
+            movie.setCountry(COUNTRIES[random.nextInt(COUNTRIES.length)]);
+            catalog.add(movie);
+        }
+        index = new MovieSearchIndex(null, 0.5);
+        index.rebuild(catalog);
+    }
+
+    @Benchmark
+    public List<Long> rareSubstring() {
+        return index.search("12345", 100); // Номер в названии
+    }
+
+    @Benchmark
+    public List<Long> twoWords() {
+        return index.search("тайна остров", 100);
+    }
+
+    @Benchmark
+    public List<Long> typo() {
+        return index.search("легедна", 100);
+    }
+
+    @Benchmark
+    public List<Long> director() {
+        return index.search("режиссер 4321", 100);
+    }
+
+    @Test
+    void run() throws Exception {
+        Files.createDirectories(BookingFunnelLoadTest.REPORT_DIR);
+        new Runner(new OptionsBuilder()
+                .include(MovieSearchBenchmarkTest.class.getName() + "\\.")
+                .resultFormat(ResultFormatType.JSON)
+                .result(BookingFunnelLoadTest.REPORT_DIR.resolve("movie-search-benchmark.json").toString())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.cinema.load;
+
+import com.example.cinema.service.QrPngEncoder;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: рендер PNG с QR-кодом билета — прежний путь (BitMatrix → BufferedImage → ImageIO)
+ * против {@link QrPngEncoder}. Кроме времени снимается выделение памяти (gc.alloc.rate.norm).
+ * Отчёт — target/load-test/qr-png-benchmark.json.
+ * <p>
+ * Запуск: {@code mvn -P load-test test -Dtest=QrPngBenchmarkTest}.
+ */
+@Tag("load")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QrPngBenchmarkTest {
+
+    @Param({"220"})
+    public int size;
+
+    private String text;
+    private QrPngEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        text = "TICKET:" + UUID.randomUUID();
+        encoder = new QrPngEncoder();
+    }
+
+    @Benchmark
+    public byte[] imageIo() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(MatrixToImageWriter.toBufferedImage(
+                new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, size, size)), "png", baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] direct() throws Exception {
+        return encoder.encode(text, size, size);
+    }
+
+    @Test
+    void run() throws Exception {
+        Files.createDirectories(BookingFunnelLoadTest.REPORT_DIR);
+        new Runner(new OptionsBuilder()
+                .include(QrPngBenchmarkTest.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(BookingFunnelLoadTest.REPORT_DIR.resolve("qr-png-benchmark.json").toString())
+                .build())
+                .run();
+    }
+}
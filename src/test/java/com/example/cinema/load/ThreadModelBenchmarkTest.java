@@ -0,0 +1,187 @@
+package com.example.cinema.load;
+
+import com.example.cinema.CinemaSpringApplication;
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.service.HallLayout;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сравнение платформенных и виртуальных потоков (spring.threads.virtual.enabled) на смеси
+ * «каталог + покупка». Приложение поднимается дважды — по разу на каждый режим, с медленной
+ * отправкой почты, как у настоящего SMTP. Отчёт с цифрами по обоим режимам —
+ * target/load-test/thread-model-benchmark.json.
+ * <p>
+ * Запуск: {@code mvn -P load-test test -Dtest=ThreadModelBenchmarkTest}.
+ */
+@Tag("load")
+class ThreadModelBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadModelBenchmarkTest.class);
+
+    private static final int USERS = Integer.getInteger("load.benchmark.users", 400);        // Больше, чем потоков Tomcat
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.benchmark.warmupSeconds", 5);
+    private static final int MEASURE_SECONDS = Integer.getInteger("load.benchmark.seconds", 20);
+    private static final long SMTP_MILLIS = Long.getLong("load.benchmark.smtpMillis", 50);     // Задержка «отправки» письма
+    private static final double BOOKING_SHARE = Double.parseDouble(
+            System.getProperty("load.benchmark.bookingShare", "0.2"));                          // Доля покупок в смеси
+    private static final int ROWS = 40;
+    private static final int SEATS_PER_ROW = 60; // 2400 мест — зал не распродаётся за время замера
+
+    private static final String CATALOG = "catalog";
+    private static final String MOVIE = "movie-details";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void compareThreadModels() throws Exception {
+        Map<String, Object> platform = run(false);
+        Map<String, Object> virtual = run(true);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenario", "thread-model-benchmark");
+        report.put("finishedAt", Instant.now().toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("virtualUsers", USERS);
+        report.put("warmupSeconds", WARMUP_SECONDS);
+        report.put("measureSeconds", MEASURE_SECONDS);
+        report.put("smtpMillis", SMTP_MILLIS);
+        report.put("bookingShare", BOOKING_SHARE);
+        report.put("platformThreads", platform);
+        report.put("virtualThreads", virtual);
+        report.put("virtualToPlatformThroughput", LatencyStats.round(
+                (double) virtual.get("requestsPerSecond") / (double) platform.get("requestsPerSecond")));
+
+        Files.createDirectories(BookingFunnelLoadTest.REPORT_DIR);
+        Path file = BookingFunnelLoadTest.REPORT_DIR.resolve("thread-model-benchmark.json");
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        logger.info("Benchmark report: {}", file.toAbsolutePath());
+
+        assertEquals(0L, platform.get("oversold"));
+        assertEquals(0L, virtual.get("oversold"));
+    }
+
+    private Map<String, Object> run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CinemaSpringApplication.class)
+                .initializers(ctx -> ((GenericApplicationContext) ctx).registerBean(
+                        JavaMailSender.class, () -> new LoadTestMailSender(SMTP_MILLIS)))
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.show-sql=false",
+                        "spring.thymeleaf.cache=true",
+                        "spring.main.banner-mode=off",
+                        "logging.level.org.springframework=WARN",
+                        "logging.level.com.example.cinema=INFO")
+                .run()) {
+
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            long movieId = createMovie(context);
+            long screeningId = createScreening(context, movieId);
+
+            LoadClient client = new LoadClient(port);
+            BookingFunnel funnel = new BookingFunnel(client, objectMapper, screeningId, ROWS, SEATS_PER_ROW, 2);
+
+            drive(client, funnel, movieId, screeningId, WARMUP_SECONDS);
+            client.resetStats();
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            int funnelsBefore = funnel.completed();
+
+            long startedNanos = System.nanoTime();
+            drive(client, funnel, movieId, screeningId, MEASURE_SECONDS);
+            double seconds = (System.nanoTime() - startedNanos) / 1e9;
+
+            Map<String, LatencyStats> stats = client.allStats();
+            long requests = stats.values().stream().mapToLong(LatencyStats::requests).sum();
+            long errors = stats.values().stream().mapToLong(LatencyStats::errors).sum();
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requestsPerSecond", LatencyStats.round(requests / seconds));
+            result.put("completedFunnelsPerSecond", LatencyStats.round((funnel.completed() - funnelsBefore) / seconds));
+            result.put("errors", errors);
+            result.put("peakPlatformThreads", threads.getPeakThreadCount()); // Вместе с потоками клиента; виртуальные не входят
+            result.put("oversold", funnel.oversold());
+            Map<String, Object> steps = new LinkedHashMap<>();
+            stats.forEach((step, s) -> steps.put(step, s.summary(seconds)));
+            result.put("steps", steps);
+            assertTrue(requests > 0, "No requests completed in " + mode + " mode");
+            return result;
+        }
+    }
+
+    // Покупатели крутят смесь сценариев, пока не выйдет время
+    private void drive(LoadClient client, BookingFunnel funnel, long movieId, long screeningId, int seconds)
+            throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService users = Executors.newFixedThreadPool(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                    if (random.nextDouble() < BOOKING_SHARE) {
+                        funnel.run();
+                    } else {
+                        client.get(CATALOG, "/movies");
+                        client.get(MOVIE, "/movies/" + movieId);
+                        client.get(BookingFunnel.SEATS, "/api/screenings/" + screeningId + "/seats");
+                    }
+                }
+            });
+        }
+        users.shutdown();
+        assertTrue(users.awaitTermination(seconds + 120L, TimeUnit.SECONDS), "Benchmark users did not stop");
+    }
+
+    private long createMovie(ConfigurableApplicationContext context) {
+        Movie movie = new Movie();
+        movie.setTitle("Premiere");
+        movie.setGenre("Drama");
+        movie.setDescription("Benchmark movie");
+        movie.setDurationMinutes(120);
+        return context.getBean(MovieRepository.class).save(movie).getId();
+    }
+
+    private long createScreening(ConfigurableApplicationContext context, long movieId) {
+        Movie movie = context.getBean(MovieRepository.class).findById(movieId).orElseThrow();
+        Hall hall = context.getBean(HallRepository.class)
+                .save(new Hall("Benchmark", HallLayout.uniform(ROWS, SEATS_PER_ROW)));
+        Screening screening = new Screening(movie, LocalDateTime.now().plusDays(1), hall, new BigDecimal("500"));
+        return context.getBean(ScreeningRepository.class).save(screening).getId();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.cinema.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BestAvailableAllocatorTest {
+
+    @Test
+    void emptyHallGetsCenterOfMiddleRow() {
+        SeatMap map = seatMap(HallLayout.uniform(5, 10));
+
+        assertEquals(List.of("3-4", "3-5", "3-6", "3-7"), labels(map, BestAvailableAllocator.allocate(map, 4)));
+        assertEquals(List.of("3-5"), labels(map, BestAvailableAllocator.allocate(map, 1)));
+        assertEquals(10, BestAvailableAllocator.allocate(map, 10).length);
+    }
+
+    @Test
+    void countOutsideRowWidthFindsNothing() {
+        SeatMap map = seatMap(HallLayout.uniform(2, 6));
+
+        assertNull(BestAvailableAllocator.allocate(map, 0));
+        assertNull(BestAvailableAllocator.allocate(map, 7));
+        assertEquals(List.of("1-1", "1-2", "1-3", "1-4", "1-5", "1-6"),
+                labels(map, BestAvailableAllocator.allocate(map, 6))); // Ряды равноудалены — берётся первый
+    }
+
+    @Test
+    void nearFullHallOffersOnlyRemainingPair() {
+        SeatMap map = seatMap(HallLayout.uniform(3, 6));
+        for (int i = 0; i < map.getLayout().getCapacity(); i++) {
+            String label = map.getLayout().labelOf(i);
+            if (!label.equals("3-5") && !label.equals("3-6")) {
+                map.occupy(label);
+            }
+        }
+
+        assertEquals(List.of("3-5", "3-6"), labels(map, BestAvailableAllocator.allocate(map, 2)));
+        assertNull(BestAvailableAllocator.allocate(map, 3));
+
+        map.hold("3-6"); // Удерживаемое место так же недоступно, как проданное
+        assertNull(BestAvailableAllocator.allocate(map, 2));
+    }
+
+    @Test
+    void fragmentedRowPicksBlockClosestToCenter() {
+        SeatMap map = seatMap("S".repeat(12));
+        for (String seat : List.of("1-3", "1-7", "1-12")) {
+            map.occupy(seat);
+        }
+        // Свободные блоки: 1-1..1-2, 1-4..1-6, 1-8..1-11
+
+        assertEquals(List.of("1-4", "1-5", "1-6"), labels(map, BestAvailableAllocator.allocate(map, 3)));
+        assertEquals(List.of("1-8", "1-9", "1-10", "1-11"), labels(map, BestAvailableAllocator.allocate(map, 4)));
+        assertNull(BestAvailableAllocator.allocate(map, 5));
+    }
+
+    @Test
+    void fullWidthRowOfSixtyFourSeats() {
+        SeatMap map = seatMap("S".repeat(64) + "\n" + "S".repeat(64));
+
+        int[] whole = BestAvailableAllocator.allocate(map, 64);
+        assertEquals(64, whole.length);
+        assertEquals("1-1", map.getLayout().labelOf(whole[0]));
+        assertEquals("1-64", map.getLayout().labelOf(whole[63]));
+
+        map.occupy("1-64");
+        map.occupy("2-1");
+        assertNull(BestAvailableAllocator.allocate(map, 64));
+        assertEquals("1-1", map.getLayout().labelOf(BestAvailableAllocator.allocate(map, 63)[0]));
+        assertEquals(List.of("1-32", "1-33"), labels(map, BestAvailableAllocator.allocate(map, 2)));
+    }
+
+    @Test
+    void wheelchairSeatsAreNeverOffered() {
+        SeatMap edges = seatMap("WWSSWW");
+        assertEquals(List.of("1-3", "1-4"), labels(edges, BestAvailableAllocator.allocate(edges, 2)));
+        assertNull(BestAvailableAllocator.allocate(edges, 3));
+
+        // Центр занят колясочными местами: блоки слева и справа равноудалены, берётся левый
+        SeatMap center = seatMap("SSWWSS");
+        assertEquals(List.of("1-1", "1-2"), labels(center, BestAvailableAllocator.allocate(center, 2)));
+    }
+
+    @Test
+    void blockStartsMatchesNaiveScan() {
+        assertEquals(0b0011_0001L, BestAvailableAllocator.blockStarts(0b1111_0111L, 3));
+        assertEquals(-1L >>> 4, BestAvailableAllocator.blockStarts(-1L, 5));
+        assertEquals(1L, BestAvailableAllocator.blockStarts(-1L, 64));
+        assertEquals(0L, BestAvailableAllocator.blockStarts(-1L & ~(1L << 40), 64));
+        assertEquals(1L << 63, BestAvailableAllocator.blockStarts(1L << 63, 1));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 2_000; i++) {
+            // OR нескольких случайных слов — длинные свободные серии, как в полупустом ряду
+            long free = random.nextBoolean() ? random.nextLong() : random.nextLong() | random.nextLong() | random.nextLong();
+            int count = 1 + random.nextInt(64);
+            assertEquals(naiveStarts(free, count), BestAvailableAllocator.blockStarts(free, count),
+                    "free=" + Long.toBinaryString(free) + " count=" + count);
+        }
+    }
+
+    @Test
+    void closestToHandlesHighestTarget() {
+        // target 63: маска «не правее» — все 64 бита, «не левее» — только старший
+        assertEquals(63, BestAvailableAllocator.closestTo(1L << 63, 63, 1, 64));
+        assertEquals(5, BestAvailableAllocator.closestTo(1L << 5, 63, 1, 64));
+        assertEquals(62, BestAvailableAllocator.closestTo(1L << 62 | 1L, 63, 1, 64));
+        assertEquals(63, BestAvailableAllocator.closestTo(1L << 63, 0, 1, 64));
+        assertEquals(62, BestAvailableAllocator.closestTo(1L << 62, 62, 2, 64));
+
+        // Равное расстояние по обе стороны — левый блок, иначе ближний к центру
+        assertEquals(0, BestAvailableAllocator.closestTo(1L | 1L << 4, 2, 2, 6));
+        assertEquals(4, BestAvailableAllocator.closestTo(1L | 1L << 4, 3, 2, 8));
+    }
+
+    private static long naiveStarts(long free, int count) {
+        long starts = 0;
+        for (int start = 0; start + count <= 64; start++) {
+            long block = count == 64 ? -1L : ((1L << count) - 1) << start;
+            if ((free & block) == block) {
+                starts |= 1L << start;
+            }
+        }
+        return starts;
+    }
+
+    private static SeatMap seatMap(String layout) {
+        return new SeatMap(1L, LocalDateTime.now().plusDays(1), HallLayout.parse(layout));
+    }
+
+    private static List<String> labels(SeatMap map, int[] indexes) {
+        return Arrays.stream(indexes).mapToObj(map.getLayout()::labelOf).toList();
+    }
+}
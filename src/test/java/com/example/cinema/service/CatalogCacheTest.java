@@ -0,0 +1,123 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Movie;
+import com.example.cinema.dto.KeysetPage;
+import com.example.cinema.repo.MovieRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Кэш каталога: повторное чтение — из памяти, сброс из админки, повторный сброс после коммита, метрики попаданий.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalog-cache-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "app.mail.outbox.poll-interval=PT1H",
+        "app.catalog.cache.max-entries=3"
+})
+class CatalogCacheTest {
+
+    @Autowired
+    private CatalogCache catalog;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        catalog.invalidateMovies();
+    }
+
+    @Test
+    void repeatedReadsShareOneSnapshot() {
+        List<CatalogCache.MovieView> first = catalog.movies();
+        double hits = hits();
+        assertSame(first, catalog.movies());
+        assertEquals(hits + 1, hits());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(null));
+        assertTrue(registry.get("catalog.cache.hit.ratio").gauge().value() > 0);
+    }
+
+    @Test
+    void adminChangesAreVisibleImmediately() {
+        int before = catalog.movies().size();
+        Movie movie = movie("Новинка");
+        catalog.invalidateMovies();
+        assertEquals(before + 1, catalog.movies().size());
+        assertEquals("Новинка", catalog.movie(movie.getId()).orElseThrow().title());
+    }
+
+    @Test
+    void invalidationInsideTransactionRepeatsAfterCommit() {
+        int before = catalog.movies().size();
+        transactionTemplate.executeWithoutResult(status -> {
+            movie("В транзакции");
+            catalog.invalidateMovies();
+            // Другой запрос читает каталог до коммита и кладёт в кэш старый список
+            assertEquals(before, CompletableFuture.supplyAsync(catalog::movies).join().size());
+        });
+        assertEquals(before + 1, catalog.movies().size());
+    }
+
+    @Test
+    void sizeIsBounded() {
+        Movie a = movie("A");
+        Movie b = movie("B");
+        Movie c = movie("C");
+        catalog.invalidateMovies();
+        catalog.movies();
+        catalog.movie(a.getId());
+        catalog.movie(b.getId());
+        catalog.movie(c.getId()); // Четыре записи при лимите в три
+        assertEquals(3.0, registry.get("catalog.cache.size").gauge().value());
+    }
+
+    @Test
+    void moviesArePagedByKeyset() {
+        for (int i = 0; i < 5; i++) {
+            movie("Страница " + i);
+        }
+        catalog.invalidateMovies();
+        List<CatalogCache.MovieView> all = catalog.movies();
+
+        List<CatalogCache.MovieView> paged = new ArrayList<>();
+        KeysetPage<CatalogCache.MovieView> page = catalog.moviesPage(0, 2);
+        paged.addAll(page.items());
+        while (page.hasNext()) {
+            assertEquals(2, page.items().size());
+            page = catalog.moviesPage(page.last().id(), 2);
+            paged.addAll(page.items());
+        }
+        assertEquals(all, paged);
+    }
+
+    private Movie movie(String title) {
+        Movie movie = new Movie();
+        movie.setTitle(title);
+        return movieRepository.save(movie);
+    }
+
+    private double hits() {
+        return registry.get("catalog.cache.gets").tag("result", "hit").counter().count();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ETag страниц каталога: меняется вместе с каталогом, расписанием, избранным и сессией; совпавший — ответ 304 без тела.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalog-etags-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "app.mail.outbox.poll-interval=PT1H"
+})
+@AutoConfigureMockMvc
+class CatalogEtagsTest {
+
+    @Autowired
+    private CatalogEtags etags;
+
+    @Autowired
+    private CatalogCache catalog;
+
+    @Autowired
+    private ScheduleMaterializer schedule;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private HallRepository hallRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void matchingEtagShortCircuitsTo304() throws Exception {
+        movie("ETag");
+        catalog.invalidateMovies();
+        for (String page : new String[]{"/movies", "/screenings"}) {
+            MvcResult first = mvc.perform(get(page)).andExpect(status().isOk()).andReturn();
+            String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+            assertTrue(etag.startsWith("W/\""));
+            assertEquals("no-cache", first.getResponse().getHeader(HttpHeaders.CACHE_CONTROL));
+
+            mvc.perform(get(page).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().string(""));
+        }
+    }
+
+    @Test
+    void catalogAndScheduleChangesChangeEtag() {
+        Movie movie = movie("Версии");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        String movies = etags.movies(request);
+        String details = etags.movie(movie.getId(), request);
+        String screenings = etags.screenings(request);
+        assertEquals(movies, etags.movies(request));
+
+        catalog.invalidateMovies();
+        assertNotEquals(movies, etags.movies(request));
+        assertNotEquals(details, etags.movie(movie.getId(), request));
+
+        details = etags.movie(movie.getId(), request);
+        Hall hall = hallRepository.save(new Hall("ETag " + System.nanoTime(), HallLayout.uniform(2, 2)));
+        Screening screening = screeningRepository.save(
+                new Screening(movie, LocalDateTime.now().plusDays(5), hall, new BigDecimal("300")));
+        schedule.screeningSaved(screening);
+        assertNotEquals(details, etags.movie(movie.getId(), request));
+        assertNotEquals(screenings, etags.screenings(request));
+    }
+
+    @Test
+    void favoritesAndSessionAreCheckedForSignedInUsers() {
+        MockHttpServletRequest request = signedIn("alice", new MockHttpSession());
+        String etag = etags.movies(request);
+        assertEquals(etag, etags.movies(request));
+        assertNotEquals(etag, etags.movies(new MockHttpServletRequest()));
+
+        etags.favoritesChanged("bob");
+        assertEquals(etag, etags.movies(request));
+        etags.favoritesChanged("alice");
+        assertNotEquals(etag, etags.movies(request));
+
+        // Новая сессия — новый CSRF-токен в формах страницы
+        String favoritesChanged = etags.movies(request);
+        assertNotEquals(favoritesChanged, etags.movies(signedIn("alice", new MockHttpSession())));
+    }
+
+    private MockHttpServletRequest signedIn(String username, MockHttpSession session) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setUserPrincipal(new UsernamePasswordAuthenticationToken(username, "",
+                AuthorityUtils.createAuthorityList("ROLE_USER")));
+        request.setSession(session);
+        return request;
+    }
+
+    private Movie movie(String title) {
+        Movie movie = new Movie();
+        movie.setTitle(title);
+        return movieRepository.save(movie);
+    }
+}
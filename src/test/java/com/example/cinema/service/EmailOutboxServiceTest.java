@@ -0,0 +1,206 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.OutboxEmail;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.OutboxEmailRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Очередь писем против встроенного SMTP-сервера (GreenMail на localhost:3025).
+ * Фоновый разбор очереди отключён длинным poll-interval — drain() вызывается из теста.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.mail.host=127.0.0.1",
+        "spring.mail.port=3025",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "app.mail.outbox.poll-interval=PT1H",
+        "app.mail.outbox.batch-size=2",
+        "app.mail.outbox.max-attempts=3",
+        "app.mail.outbox.initial-backoff=PT10M",
+        "app.mail.outbox.max-backoff=PT1H"
+})
+class EmailOutboxServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailOutboxService outbox;
+
+    @MockitoSpyBean
+    private OutboxEmailRepository outboxRepository;
+
+    @Autowired
+    private SeatReservationService reservationService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private HallRepository hallRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    private Screening screening;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        Movie movie = new Movie();
+        movie.setTitle("Outbox");
+        movie = movieRepository.save(movie);
+        Hall hall = hallRepository.save(new Hall("Outbox " + System.nanoTime(), HallLayout.uniform(5, 10)));
+        screening = screeningRepository.save(new Screening(movie, LocalDateTime.now().plusDays(1), hall, new BigDecimal("300")));
+    }
+
+    @Test
+    void purchaseIsQueuedAndMailedInBatches() throws Exception {
+        // 5 писем при batch-size=2 и двух обработчиках: полный проход (4) и сразу ещё один
+        for (int i = 1; i <= 5; i++) {
+            reservationService.reserve(screening, null, "Guest " + i, "guest" + i + "@example.com",
+                    List.of(i + "-1", i + "-2"), null, null);
+        }
+        assertEquals(5, outboxRepository.countByStatus(OutboxEmail.Status.PENDING));
+        assertEquals(0, smtp.getReceivedMessages().length, "Purchase must not talk to SMTP");
+
+        outbox.drain();
+
+        MimeMessage[] received = smtp.getReceivedMessages();
+        assertEquals(5, received.length);
+        assertEquals("Ваши билеты в кино", received[0].getSubject());
+        // QR — inline-вложения, на которые ссылается HTML, а не data: URI
+        String raw = GreenMailUtil.getWholeMessage(received[0]);
+        assertTrue(raw.contains("multipart/related"));
+        assertEquals(2, raw.split("Content-ID: <qr-", -1).length - 1);
+        assertTrue(raw.contains("cid:qr-"));
+        assertFalse(raw.contains("data:image"));
+        assertEquals(5, outboxRepository.countByStatus(OutboxEmail.Status.SENT));
+        for (OutboxEmail email : outboxRepository.findAll()) {
+            assertEquals(1, email.getAttempts());
+            assertNotNull(email.getSentAt());
+        }
+    }
+
+    @Test
+    void failedSendIsRetriedAfterBackoff() {
+        smtp.stop();
+        reservationService.reserve(screening, null, "Guest", "guest@example.com", List.of("1-1"), null, null);
+
+        outbox.drain();
+
+        OutboxEmail email = outboxRepository.findAll().get(0);
+        assertEquals(OutboxEmail.Status.PENDING, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertNotNull(email.getLastError());
+        // 10 минут ± 20%
+        assertTrue(email.getNextAttemptAt().isAfter(LocalDateTime.now().plusMinutes(7)), "Backoff not applied");
+
+        smtp.start();
+        outbox.drain(); // Отсрочка ещё не прошла — письмо не трогаем
+        assertEquals(0, smtp.getReceivedMessages().length);
+
+        makeDue(email);
+        outbox.drain();
+
+        email = outboxRepository.findById(email.getId()).orElseThrow();
+        assertEquals(OutboxEmail.Status.SENT, email.getStatus());
+        assertEquals(2, email.getAttempts());
+        assertNull(email.getLastError());
+        assertEquals(1, smtp.getReceivedMessages().length);
+    }
+
+    @Test
+    void emailIsDeadAfterMaxAttempts() {
+        smtp.stop();
+        reservationService.reserve(screening, null, "Guest", "guest@example.com", List.of("2-1"), null, null);
+        OutboxEmail email = outboxRepository.findAll().get(0);
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            makeDue(email);
+            outbox.drain();
+            email = outboxRepository.findById(email.getId()).orElseThrow();
+            assertEquals(attempt, email.getAttempts());
+        }
+        assertEquals(OutboxEmail.Status.DEAD, email.getStatus());
+
+        smtp.start();
+        makeDue(email);
+        outbox.drain(); // DEAD больше не отправляется
+        assertEquals(0, smtp.getReceivedMessages().length);
+        assertEquals(3, outboxRepository.findById(email.getId()).orElseThrow().getAttempts());
+    }
+
+    @Test
+    void deliveredEmailIsMarkedSentWhenBatchSaveFails() {
+        for (int i = 1; i <= 2; i++) {
+            reservationService.reserve(screening, null, "Guest " + i, "guest" + i + "@example.com", List.of(i + "-3"), null, null);
+        }
+        doThrow(new DataAccessResourceFailureException("saveAll")).when(outboxRepository).saveAll(any());
+
+        outbox.drain();
+
+        assertEquals(2, smtp.getReceivedMessages().length);
+        assertEquals(2, outboxRepository.countByStatus(OutboxEmail.Status.SENT)); // Сохранены по одному
+    }
+
+    @Test
+    void failedStatusSaveStopsDrainInsteadOfResending() {
+        // 5 писем при batch-size=2 и двух обработчиках: без статусов очередь полна, и проход повторялся бы без конца
+        for (int i = 1; i <= 5; i++) {
+            reservationService.reserve(screening, null, "Guest " + i, "guest" + i + "@example.com", List.of(i + "-4"), null, null);
+        }
+        doThrow(new DataAccessResourceFailureException("saveAll")).when(outboxRepository).saveAll(any());
+        doThrow(new DataAccessResourceFailureException("save")).when(outboxRepository).save(any());
+
+        outbox.drain();
+
+        assertEquals(4, smtp.getReceivedMessages().length); // Один проход, без повторной отправки
+        assertEquals(5, outboxRepository.countByStatus(OutboxEmail.Status.PENDING));
+    }
+
+    @Test
+    void guestWithoutEmailGetsNoLetter() {
+        reservationService.reserve(screening, null, "Guest", null, List.of("3-1"), null, null);
+        assertEquals(0, outboxRepository.count());
+    }
+
+    private void makeDue(OutboxEmail email) {
+        OutboxEmail stored = outboxRepository.findById(email.getId()).orElseThrow();
+        stored.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        outboxRepository.save(stored);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.AppUser;
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.OutboxEmail;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.repo.AppUserRepository;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.OutboxEmailRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Рассылка поклонникам: keyset-порции по 2 (fan-out-chunk), слияние в одну сводку на пользователя в день,
+ * доставка через очередь писем на встроенный SMTP-сервер.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fan-out-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.mail.host=127.0.0.1",
+        "spring.mail.port=3025",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "app.mail.outbox.poll-interval=PT1H",
+        "app.notifications.fan-out-chunk=2"
+})
+class FavoriteScreeningNotifierTest {
+
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private FavoriteScreeningNotifier notifier;
+
+    @Autowired
+    private EmailOutboxService outbox;
+
+    @Autowired
+    private OutboxEmailRepository outboxRepository;
+
+    @Autowired
+    private AppUserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private HallRepository hallRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Movie movie;
+    private Hall hall;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        movie = new Movie();
+        movie.setTitle("Favourite");
+        movie = movieRepository.save(movie);
+        hall = hallRepository.save(new Hall("Fans " + System.nanoTime(), HallLayout.uniform(2, 2)));
+    }
+
+    @Test
+    void fansGetOneDigestPerDay() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            fan("fan" + i + "-" + System.nanoTime(), "fan" + i + "@example.com");
+        }
+        fan("no-mail-" + System.nanoTime(), null);
+
+        Screening first = screening(LocalDateTime.now().plusDays(2));
+        Screening second = screening(LocalDateTime.now().plusDays(3));
+        assertEquals(5, notifier.notifyFans(movie.getId(), first.getId()));
+        assertEquals(5, notifier.notifyFans(movie.getId(), second.getId()));
+
+        List<OutboxEmail> digests = outboxRepository.findAll();
+        assertEquals(5, digests.size(), "One digest per fan, not per screening");
+        for (OutboxEmail digest : digests) {
+            assertEquals(OutboxEmail.Kind.FAVORITE_SCREENINGS, digest.getKind());
+            assertEquals(first.getId() + "," + second.getId(), digest.getPayload());
+            assertTrue(digest.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        }
+
+        // Наступило время сводки
+        jdbcTemplate.update("update email_outbox set next_attempt_at = ?", LocalDateTime.now().minusSeconds(1));
+        outbox.drain();
+
+        MimeMessage[] received = smtp.getReceivedMessages();
+        assertEquals(5, received.length);
+        String body = GreenMailUtil.getBody(received[0]);
+        assertTrue(body.contains("/tickets/book/" + first.getId()));
+        assertTrue(body.contains("/tickets/book/" + second.getId()));
+        assertEquals(5, outboxRepository.countByStatus(OutboxEmail.Status.SENT));
+    }
+
+    @Test
+    void digestGoesToNextDigestTime() {
+        // digest-time=10:00; в сводку, которую вот-вот отправят, уже не дописываем
+        LocalDateTime morning = LocalDateTime.of(2030, 5, 1, 9, 0);
+        assertEquals(LocalDateTime.of(2030, 5, 1, 10, 0), notifier.nextDigest(morning));
+        assertEquals(LocalDateTime.of(2030, 5, 2, 10, 0), notifier.nextDigest(morning.withMinute(59).withSecond(30)));
+        assertEquals(LocalDateTime.of(2030, 5, 2, 10, 0), notifier.nextDigest(morning.withHour(15)));
+    }
+
+    private void fan(String username, String email) {
+        AppUser user = new AppUser(username, "x", username);
+        user.setEmail(email);
+        user.addFavoriteMovie(movie);
+        userRepository.save(user);
+    }
+
+    private Screening screening(LocalDateTime startTime) {
+        return screeningRepository.save(new Screening(movie, startTime, hall, new BigDecimal("300")));
+    }
+}
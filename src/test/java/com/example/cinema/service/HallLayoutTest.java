@@ -0,0 +1,101 @@
+package com.example.cinema.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HallLayoutTest {
+
+    @Test
+    void parsesSeatTypesAndGaps() {
+        HallLayout layout = HallLayout.parse(" s_v \n\n  WSS\n");
+
+        assertEquals(List.of("S_V", "WSS"), layout.getRowPlans());
+        assertEquals(2, layout.getRows());
+        assertEquals(3, layout.getColumns());
+        assertEquals(5, layout.getCapacity());
+        assertEquals(2, layout.getSeatsInRow(1));
+        assertEquals(0b101L, layout.getSeatMask(1));
+        assertEquals(0b111L, layout.getSeatMask(2));
+        assertEquals(0L, layout.getWheelchairMask(1));
+        assertEquals(0b001L, layout.getWheelchairMask(2));
+
+        assertEquals(HallLayout.SeatType.STANDARD, layout.typeOf(layout.indexOf("1-1")));
+        assertEquals(HallLayout.SeatType.VIP, layout.typeOf(layout.indexOf("1-2")));
+        assertEquals(HallLayout.SeatType.WHEELCHAIR, layout.typeOf(layout.indexOf("2-1")));
+        assertEquals(2, layout.columnOf(layout.indexOf("1-2"))); // Проход не нумеруется, но позицию занимает
+    }
+
+    @Test
+    void rowFillsWholeMaskAtColumnLimit() {
+        HallLayout layout = HallLayout.parse("S".repeat(HallLayout.MAX_COLUMNS));
+
+        assertEquals(64, layout.getColumns());
+        assertEquals(-1L, layout.getSeatMask(1));
+        assertEquals(63, layout.indexAt(1, 63));
+        assertEquals("1-64", layout.labelOf(63));
+        assertEquals(-1, layout.indexAt(1, 64));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> HallLayout.parse("SS\n" + "S".repeat(HallLayout.MAX_COLUMNS + 1)));
+        assertTrue(e.getMessage().startsWith("Ряд 2"), e.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   \n  ", "SSX", "S S", "___", "SS\n__"})
+    void rejectsInvalidLayouts(String text) {
+        assertThrows(IllegalArgumentException.class, () -> HallLayout.parse(text));
+    }
+
+    @Test
+    void rejectsNull() {
+        assertThrows(IllegalArgumentException.class, () -> HallLayout.parse(null));
+    }
+
+    @Test
+    void normalizedPlansRoundTrip() {
+        HallLayout layout = HallLayout.parse("ww__ssss__ww\nvvvv__vvvv\n_s_s_s_");
+        HallLayout reparsed = HallLayout.parse(String.join("\n", layout.getRowPlans()));
+
+        assertEquals(layout.getRowPlans(), reparsed.getRowPlans());
+        assertEquals(layout.getCapacity(), reparsed.getCapacity());
+        for (int i = 0; i < layout.getCapacity(); i++) {
+            assertEquals(layout.labelOf(i), reparsed.labelOf(i));
+            assertEquals(layout.typeOf(i), reparsed.typeOf(i));
+        }
+
+        HallLayout uniform = HallLayout.parse(HallLayout.uniform(3, 4));
+        assertEquals(12, uniform.getCapacity());
+        assertEquals(HallLayout.uniform(3, 4), String.join("\n", uniform.getRowPlans()));
+    }
+
+    @Test
+    void labelsAndPositionsMapToDenseIndexes() {
+        HallLayout layout = HallLayout.parse("S_S_S\nSSSSSSS\n__W");
+
+        for (int i = 0; i < layout.getCapacity(); i++) {
+            assertEquals(i, layout.indexOf(layout.labelOf(i)));
+            assertEquals(i, layout.indexOf(layout.rowOf(i), layout.seatOf(i)));
+            assertEquals(i, layout.indexAt(layout.rowOf(i), layout.columnOf(i)));
+        }
+        assertEquals(3, layout.indexOf("2-1")); // Индексы идут по рядам подряд
+        assertEquals(10, layout.indexOf("3-1"));
+        assertEquals(-1, layout.indexAt(1, 1)); // Проход
+        assertEquals(-1, layout.indexAt(3, 0));
+        assertEquals(-1, layout.indexAt(1, -1));
+        assertEquals(-1, layout.indexAt(4, 0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0-1", "1-0", "1-4", "4-1", "3-2", "1-", "-1", "11", "a-1", "1-b", "1--1"})
+    void unknownLabelsHaveNoIndex(String label) {
+        HallLayout layout = HallLayout.parse("S_S_S\nSSSSSSS\n__W");
+        assertEquals(-1, layout.indexOf(label));
+    }
+}
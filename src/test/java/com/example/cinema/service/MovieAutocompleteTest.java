@@ -0,0 +1,76 @@
+package com.example.cinema.service;
+
+import com.example.cinema.dto.MovieSuggestion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Подсказки по префиксу: слова названия и режиссёра, ранг по числу предстоящих сеансов, без повторов.
+ */
+class MovieAutocompleteTest {
+
+    private MovieAutocomplete autocomplete;
+
+    @BeforeEach
+    void setUp() {
+        autocomplete = new MovieAutocomplete(null, null, Duration.ofMinutes(10));
+        autocomplete.rebuild(List.of(
+                new MovieAutocomplete.Candidate(1, "Матрица", "Лана Вачовски", 2),
+                new MovieAutocomplete.Candidate(2, "Матрица: Перезагрузка", "Лана Вачовски", 5),
+                new MovieAutocomplete.Candidate(3, "Мастер и Маргарита", "Михаил Локшин", 0),
+                new MovieAutocomplete.Candidate(4, "Ёлки", "Тимур Бекмамбетов", 1),
+                new MovieAutocomplete.Candidate(5, "Марсианин", "Ридли Скотт", 2)));
+    }
+
+    @Test
+    void moreUpcomingScreeningsRankHigher() {
+        assertEquals(List.of(2L, 1L), ids(autocomplete.suggest("матр", 10)));
+        // Короткий префикс — из заранее посчитанных; при равенстве сеансов — по названию
+        assertEquals(List.of(2L, 5L, 1L, 3L), ids(autocomplete.suggest("Ма", 10)));
+    }
+
+    @Test
+    void matchesAnyWordOfTitleAndDirector() {
+        assertEquals(List.of(2L), ids(autocomplete.suggest("перез", 10)));
+        assertEquals(List.of(2L, 1L), ids(autocomplete.suggest("вачов", 10)));
+        assertEquals(List.of(3L), ids(autocomplete.suggest("мастер и марг", 10)));
+        assertEquals(List.of(4L), ids(autocomplete.suggest("елк", 10)));
+        assertEquals(List.of(), ids(autocomplete.suggest("атрица", 10)), "Only word prefixes match");
+    }
+
+    @Test
+    void movieIsSuggestedOnceEvenIfSeveralWordsMatch() {
+        // «Мастер и Маргарита», режиссёр «Михаил» — три слова на «м», фильм один
+        List<Long> found = ids(autocomplete.suggest("м", 10));
+        assertEquals(found.stream().distinct().toList(), found);
+        assertEquals(4, found.size());
+    }
+
+    @Test
+    void limitIsRespectedAndClamped() {
+        assertEquals(List.of(2L), ids(autocomplete.suggest("ма", 1)));
+        assertEquals(List.of(2L, 1L), ids(autocomplete.suggest("матрица", 2)));
+        assertTrue(autocomplete.suggest("", 10).isEmpty());
+        assertTrue(autocomplete.suggest("ма", 0).isEmpty());
+
+        List<MovieAutocomplete.Candidate> many = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            many.add(new MovieAutocomplete.Candidate(i, "Фильм " + i, null, 100 - i));
+        }
+        autocomplete.rebuild(many);
+        assertEquals(MovieAutocomplete.MAX_LIMIT, autocomplete.suggest("фил", 1000).size());
+        assertEquals(MovieAutocomplete.MAX_LIMIT, autocomplete.suggest("фильм", 1000).size());
+        assertEquals(0L, autocomplete.suggest("фильм", 1).get(0).id());
+    }
+
+    private static List<Long> ids(List<MovieSuggestion> suggestions) {
+        return suggestions.stream().map(MovieSuggestion::id).toList();
+    }
+}
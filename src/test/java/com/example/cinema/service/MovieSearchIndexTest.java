@@ -0,0 +1,91 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Movie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieSearchIndexTest {
+
+    private MovieSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MovieSearchIndex(null, 0.5);
+        index.rebuild(List.of(
+                movie(1, "Матрица", "Фантастика", "Лана Вачовски", "США"),
+                movie(2, "Матрица: Перезагрузка", "Фантастика", "Лана Вачовски", "США"),
+                movie(3, "Брат", "Драма", "Алексей Балабанов", "Россия"),
+                movie(4, "Ёлки", "Комедия", "Тимур Бекмамбетов", "Россия"),
+                movie(5, "Автоматрица", "Документальный", "Иван Иванов", "Франция")));
+    }
+
+    @Test
+    void substringRankedByPosition() {
+        // Точное название, потом начало названия, потом середина слова
+        assertEquals(List.of(1L, 2L, 5L), index.search("матрица", 10));
+        assertEquals(List.of(2L), index.search("перезагр", 10));
+    }
+
+    @Test
+    void searchesDirectorGenreAndCountry() {
+        assertEquals(List.of(3L), index.search("балабанов", 10));
+        assertEquals(List.of(3L, 4L), index.search("россия", 10));
+        assertEquals(List.of(1L, 2L), index.search("фантаст", 10));
+    }
+
+    @Test
+    void toleratesTypos() {
+        assertEquals(3L, index.search("балобанов", 10).get(0));
+        assertEquals(1L, index.search("матрца", 10).get(0));
+    }
+
+    @Test
+    void shortQueriesMatchWordStarts() {
+        assertEquals(List.of(3L, 4L), index.search("ро", 10)); // Россия, но не «Перезагрузка»
+        assertTrue(index.search("ри", 10).isEmpty());
+    }
+
+    @Test
+    void normalizesCaseYoAndPunctuation() {
+        assertEquals(List.of(4L), index.search("ЕЛКИ", 10));
+        assertEquals(List.of(2L), index.search("матрица:перезагрузка!", 10));
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        index.put(movie(3, "Брат 2", "Боевик", "Алексей Балабанов", "Россия"));
+        assertEquals(List.of(3L), index.search("боевик", 10));
+        assertTrue(index.search("драма", 10).isEmpty());
+
+        index.remove(1L);
+        assertEquals(List.of(2L, 5L), index.search("матрица", 10));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void compactsAfterManyDeletes() {
+        for (long id = 100; id < 200; id++) {
+            index.put(movie(id, "Фильм " + id, "Драма", "Режиссёр", "Страна"));
+        }
+        for (long id = 100; id < 200; id++) {
+            index.remove(id);
+        }
+        assertEquals(5, index.size());
+        assertEquals(List.of(3L), index.search("драма", 10));
+    }
+
+    private static Movie movie(long id, String title, String genre, String director, String country) {
+        Movie movie = new Movie();
+        movie.setId(id);
+        movie.setTitle(title);
+        movie.setGenre(genre);
+        movie.setDirector(director);
+        movie.setCountry(country);
+        return movie;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.cinema.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class QrImageCacheTest {
+
+    // Вес записи: PNG + текст (2 байта на символ) + 128 байт накладных расходов
+    private static final int PNG_BYTES = 1000;
+    private static final long ENTRY_BYTES = PNG_BYTES + 2 + 128;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Test
+    void secondRequestIsServedFromCache() {
+        QrImageCache cache = new QrImageCache(1 << 20, registry);
+
+        QrImageCache.QrImage first = cache.get("a", 220, 220, this::render);
+        QrImageCache.QrImage second = cache.get("a", 220, 220, this::render);
+        assertSame(first, second);
+        assertEquals(1, renders.get());
+
+        cache.get("a", 100, 100, this::render); // Другой размер — другая картинка
+        assertEquals(2, renders.get());
+        assertEquals(1.0, gets("hit"));
+        assertEquals(2.0, gets("miss"));
+        assertEquals(2.0, registry.get("qr.cache.size").gauge().value());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOnceBytesExceedLimit() {
+        QrImageCache cache = new QrImageCache(3 * ENTRY_BYTES, registry);
+        cache.get("a", 1, 1, this::render);
+        cache.get("b", 1, 1, this::render);
+        cache.get("c", 1, 1, this::render);
+        assertEquals(3.0 * ENTRY_BYTES, registry.get("qr.cache.bytes").gauge().value());
+
+        cache.get("a", 1, 1, this::render); // a — самая свежая, вытеснится b
+        cache.get("d", 1, 1, this::render);
+        assertEquals(1.0, registry.get("qr.cache.evictions").counter().count());
+        assertEquals(3.0 * ENTRY_BYTES, registry.get("qr.cache.bytes").gauge().value());
+
+        int rendered = renders.get();
+        cache.get("a", 1, 1, this::render);
+        cache.get("c", 1, 1, this::render);
+        cache.get("d", 1, 1, this::render);
+        assertEquals(rendered, renders.get());
+        cache.get("b", 1, 1, this::render);
+        assertEquals(rendered + 1, renders.get());
+    }
+
+    @Test
+    void imageLargerThanCacheIsNotKept() {
+        QrImageCache cache = new QrImageCache(ENTRY_BYTES - 1, registry);
+
+        cache.get("a", 1, 1, this::render);
+        cache.get("a", 1, 1, this::render);
+        assertEquals(2, renders.get());
+        assertEquals(0.0, registry.get("qr.cache.bytes").gauge().value());
+    }
+
+    @Test
+    void etagFollowsPngBytes() {
+        QrImageCache cache = new QrImageCache(1 << 20, registry);
+
+        QrImageCache.QrImage a = cache.get("a", 1, 1, () -> new byte[]{1, 2, 3});
+        QrImageCache.QrImage b = cache.get("b", 1, 1, () -> new byte[]{1, 2, 3});
+        QrImageCache.QrImage c = cache.get("c", 1, 1, () -> new byte[]{3, 2, 1});
+        assertEquals(a.etag(), b.etag());
+        assertNotEquals(a.etag(), c.etag());
+        assertArrayEquals(new byte[]{1, 2, 3}, a.png());
+    }
+
+    private byte[] render() {
+        renders.incrementAndGet();
+        return new byte[PNG_BYTES];
+    }
+
+    private double gets(String result) {
+        return registry.get("qr.cache.gets").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.cinema.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QrPngEncoderTest {
+
+    private final QrPngEncoder encoder = new QrPngEncoder(1);
+
+    @ParameterizedTest
+    @CsvSource({"220, 220", "100, 100", "300, 150", "0, 0", "57, 333"})
+    void pngDecodesAndMatchesZxingRendering(int width, int height) throws Exception {
+        String text = "TICKET:" + UUID.randomUUID();
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(encoder.encode(text, width, height)));
+        BufferedImage expected = MatrixToImageWriter.toBufferedImage(
+                new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, width, height));
+
+        assertEquals(expected.getWidth(), image.getWidth());
+        assertEquals(expected.getHeight(), image.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), image.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+        assertEquals(text, decode(image));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1", "120", "1000"})
+    void longContentsDecodeAfterBufferReuse(int length) throws Exception {
+        String text = "x".repeat(length);
+        encoder.encode("TICKET:" + UUID.randomUUID(), 40, 40); // Буферы пула остаются от другого размера
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(encoder.encode(text, 220, 220)));
+
+        assertEquals(text, decode(image));
+    }
+
+    private static String decode(BufferedImage image) throws Exception {
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+        Result result = new QRCodeReader().decode(bitmap, Map.of(DecodeHintType.PURE_BARCODE, Boolean.TRUE));
+        return result.getText();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.dto.KeysetPage;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.service.CatalogCache.ScreeningView;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Расписание в памяти: даты и сеансы фильма, страницы расписания, пересборка только затронутых дней.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schedule-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "app.mail.outbox.poll-interval=PT1H"
+})
+class ScheduleMaterializerTest {
+
+    @Autowired
+    private ScheduleMaterializer schedule;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private HallRepository hallRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void scheduleShowsOnlyScreeningsAhead() {
+        Movie movie = movie("Расписание");
+        Hall hall = hall();
+        LocalDateTime day = LocalDateTime.now().plusDays(2).withHour(12).withMinute(0).withSecond(0).withNano(0);
+        Screening noon = save(movie, day, hall);
+        Screening evening = save(movie, day.withHour(20), hall);
+        save(movie, day.plusDays(3), hall);
+
+        // «Сейчас» — после дневного сеанса: в этот день остаётся только вечерний
+        LocalDateTime afternoon = day.withHour(15);
+        assertEquals(List.of(day.toLocalDate(), day.plusDays(3).toLocalDate()), schedule.dates(movie.getId(), afternoon));
+        assertEquals(List.of(evening.getId()), ids(schedule.screeningsByHall(movie.getId(), day.toLocalDate(), afternoon)
+                .get(hall.getName())));
+        assertEquals(List.of(noon.getId(), evening.getId()), ids(schedule.screeningsByHall(movie.getId(), day.toLocalDate(),
+                day.minusDays(1)).get(hall.getName())));
+
+        // Все сеансы дня прошли — день из списка дат пропадает
+        LocalDateTime night = day.withHour(23);
+        assertEquals(List.of(day.plusDays(3).toLocalDate()), schedule.dates(movie.getId(), night));
+        assertTrue(schedule.screeningsByHall(movie.getId(), day.toLocalDate(), day.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void onlyAffectedDaysAreRebuilt() {
+        Movie movie = movie("Перенос");
+        Hall hall = hall();
+        LocalDateTime first = LocalDateTime.now().plusDays(10).withHour(18).withMinute(0).withSecond(0).withNano(0);
+        Screening screening = save(movie, first, hall);
+        LocalDate other = first.plusDays(1).toLocalDate();
+        save(movie, first.plusDays(1), hall);
+        save(movie, first.plusDays(2), hall);
+        ScheduleMaterializer.DaySchedule untouched = schedule.day(first.plusDays(2).toLocalDate());
+        long otherVersion = schedule.day(other).version();
+
+        // Перенос на день вперёд: пересобраны старый и новый день, третий день — тот же снимок
+        screening.setStartTime(first.plusDays(1).withHour(21));
+        schedule.screeningSaved(screeningRepository.save(screening));
+        assertNull(schedule.day(first.toLocalDate()));
+        assertNotEquals(otherVersion, schedule.day(other).version());
+        assertEquals(2, schedule.day(other).screenings().size());
+        assertSame(untouched, schedule.day(first.plusDays(2).toLocalDate()));
+
+        screeningRepository.deleteById(screening.getId());
+        schedule.screeningDeleted(screening.getId());
+        assertEquals(1, schedule.day(other).screenings().size());
+    }
+
+    @Test
+    void changesInsideTransactionApplyAfterCommit() {
+        Movie movie = movie("Транзакция");
+        Hall hall = hall();
+        LocalDateTime start = LocalDateTime.now().plusDays(20).withHour(19).withMinute(0).withSecond(0).withNano(0);
+        transactionTemplate.executeWithoutResult(status -> {
+            save(movie, start, hall);
+            assertNull(schedule.day(start.toLocalDate())); // До коммита снимок прежний
+        });
+        assertEquals(1, schedule.day(start.toLocalDate()).screenings().size());
+    }
+
+    @Test
+    void hallRenameReachesSnapshot() {
+        Movie movie = movie("Зал");
+        Hall hall = hall();
+        LocalDateTime start = LocalDateTime.now().plusDays(30).withHour(19).withMinute(0).withSecond(0).withNano(0);
+        save(movie, start, hall);
+        hall.setName(hall.getName() + " VIP");
+        hallRepository.save(hall);
+        schedule.hallChanged(hall.getId());
+        assertEquals(hall.getName(), schedule.day(start.toLocalDate()).screenings().get(0).hall().name());
+    }
+
+    @Test
+    void scheduleIsPagedByKeyset() {
+        Movie movie = movie("Страницы");
+        Hall hall = hall();
+        LocalDateTime start = LocalDateTime.now().plusDays(40).withHour(10).withMinute(0).withSecond(0).withNano(0);
+        for (int i = 0; i < 5; i++) {
+            save(movie, start.plusDays(i / 2), hall); // По два сеанса с одинаковым временем
+        }
+        LocalDateTime from = start.minusMinutes(1);
+
+        List<ScreeningView> paged = new ArrayList<>();
+        KeysetPage<ScreeningView> page = schedule.page(from, 0, 2);
+        paged.addAll(page.items());
+        while (page.hasNext()) {
+            assertEquals(2, page.items().size());
+            page = schedule.page(page.last().startTime(), page.last().id(), 2);
+            paged.addAll(page.items());
+        }
+        assertEquals(schedule.page(from, 0, 100).items(), paged);
+        assertEquals(5, paged.size());
+    }
+
+    private Screening save(Movie movie, LocalDateTime start, Hall hall) {
+        Screening screening = screeningRepository.save(new Screening(movie, start, hall, new BigDecimal("300")));
+        schedule.screeningSaved(screening);
+        return screening;
+    }
+
+    private Movie movie(String title) {
+        Movie movie = new Movie();
+        movie.setTitle(title);
+        return movieRepository.save(movie);
+    }
+
+    private Hall hall() {
+        return hallRepository.save(new Hall("Hall " + System.nanoTime(), HallLayout.uniform(2, 2)));
+    }
+
+    private static List<Long> ids(List<ScreeningView> screenings) {
+        return screenings.stream().map(ScreeningView::id).toList();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Брони мест: переживают сброс карты сеанса (после перезагрузки из базы удерживаемые места остаются недоступны),
+ * снять или выкупить бронь может только тот, кто её поставил.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:seat-hold-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "app.mail.outbox.poll-interval=PT1H"
+})
+class SeatHoldServiceTest {
+
+    @Autowired
+    private SeatHoldService holdService;
+
+    @Autowired
+    private SeatInventoryService seatInventory;
+
+    @Autowired
+    private SeatReservationService reservationService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private HallRepository hallRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Test
+    void holdSurvivesSeatMapEviction() {
+        Screening screening = screening();
+        SeatHold hold = holdService.place(screening, List.of("1-1"), "session:a");
+
+        seatInventory.evict(screening.getId());
+        SeatMap reloaded = seatInventory.getSeatMap(screening);
+        assertTrue(reloaded.isUnavailable(reloaded.getLayout().indexOf("1-1")));
+        assertThrows(SeatsUnavailableException.class, () -> holdService.place(screening, List.of("1-1"), "session:b"));
+
+        seatInventory.evictAll();
+        assertTrue(holdService.placeBestAvailable(screening, 2, "session:b").getSeats().stream().noneMatch("1-1"::equals));
+
+        // Отпущенная бронь после перезагрузки карты место не держит
+        assertTrue(holdService.release(hold.getId(), "session:a"));
+        seatInventory.evict(screening.getId());
+        SeatMap afterRelease = seatInventory.getSeatMap(screening);
+        assertFalse(afterRelease.isUnavailable(afterRelease.getLayout().indexOf("1-1")));
+    }
+
+    @Test
+    void onlyOwnerReleasesHold() {
+        Screening screening = screening();
+        SeatHold hold = holdService.place(screening, List.of("2-2"), "user:alice");
+
+        assertFalse(holdService.release(hold.getId(), "session:someone"));
+        assertFalse(holdService.release(hold.getId(), null));
+        assertTrue(holdService.find(hold.getId()).isPresent());
+
+        assertTrue(holdService.release(hold.getId(), "user:alice"));
+        assertTrue(holdService.find(hold.getId()).isEmpty());
+    }
+
+    @Test
+    void onlyOwnerBuysHeldSeats() {
+        Screening screening = screening();
+        SeatHold hold = holdService.place(screening, List.of("2-1"), "user:alice");
+
+        // Чужой holdId не даёт выкупить места брони
+        assertThrows(SeatsUnavailableException.class, () -> reservationService.reserve(
+                screening, null, "Mallory", "m@example.com", List.of("2-1"), hold.getId(), "session:mallory"));
+        assertTrue(holdService.find(hold.getId()).isPresent());
+
+        assertEquals(1, reservationService.reserve(
+                screening, null, "Alice", "a@example.com", List.of("2-1"), hold.getId(), "user:alice").size());
+        assertTrue(holdService.find(hold.getId()).isEmpty());
+    }
+
+    private Screening screening() {
+        Movie movie = new Movie();
+        movie.setTitle("Брони");
+        movieRepository.save(movie);
+        Hall hall = hallRepository.save(new Hall("Holds " + System.nanoTime(), HallLayout.uniform(2, 2)));
+        return screeningRepository.save(
+                new Screening(movie, LocalDateTime.now().plusDays(1), hall, new BigDecimal("300")));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.cinema.service;
+
+import com.example.cinema.domain.Hall;
+import com.example.cinema.domain.Movie;
+import com.example.cinema.domain.Screening;
+import com.example.cinema.domain.Ticket;
+import com.example.cinema.repo.HallRepository;
+import com.example.cinema.repo.MovieRepository;
+import com.example.cinema.repo.ScreeningRepository;
+import com.example.cinema.repo.TicketRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Атомарная покупка мест: параллельные покупатели не получают одно место дважды,
+ * а расхождение карты мест с базой (уникальный индекс) даёт отказ с конфликтующими местами и сброс карты.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:seat-reservation-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "app.mail.outbox.poll-interval=PT1H"
+})
+class SeatReservationServiceTest {
+
+    private static final int BUYERS = 8;
+
+    @Autowired
+    private SeatReservationService reservationService;
+
+    @Autowired
+    private SeatInventoryService seatInventory;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private HallRepository hallRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Test
+    void concurrentBuyersNeverShareSeat() throws Exception {
+        Screening screening = screening();
+
+        // Все хотят одно место — выигрывает ровно один
+        List<Boolean> single = race(screening, i -> List.of("2-1"));
+        assertEquals(1, single.stream().filter(won -> won).count());
+
+        // Пары соседних мест по кругу 1-1..1-4: каждая пересекается с двумя другими.
+        // Первая выигравшая пара и непересекающаяся с ней покупаются, остальные получают отказ целиком
+        List<Boolean> pairs = race(screening, i -> List.of("1-" + (i % 4 + 1), "1-" + ((i + 1) % 4 + 1)));
+        assertEquals(2, pairs.stream().filter(won -> won).count());
+
+        for (String seat : List.of("1-1", "1-2", "1-3", "1-4", "2-1")) {
+            assertEquals(List.of(seat), ticketRepository.findTakenSeats(screening.getId(), List.of(seat)),
+                    "Seat " + seat + " must be sold exactly once");
+        }
+        assertEquals(5, ticketRepository.findSeatsByScreeningId(screening.getId()).size());
+    }
+
+    @Test
+    void databaseConflictEvictsSeatMapAndNamesTakenSeats() {
+        Screening screening = screening();
+        seatInventory.getSeatMap(screening); // Карта загружена, место 3-1 в ней свободно
+
+        // Билет добавлен в обход сервиса — карта о нём не знает, остановит только уникальный индекс
+        Ticket sneaked = new Ticket();
+        sneaked.setScreening(screening);
+        sneaked.setSeat("3-1");
+        sneaked.setCustomerName("Касса");
+        ticketRepository.save(sneaked);
+
+        SeatsUnavailableException e = assertThrows(SeatsUnavailableException.class, () -> reservationService.reserve(
+                screening, null, "Guest", "guest@example.com", List.of("3-1", "3-2"), null, null));
+        assertEquals(List.of("3-1"), e.getSeats());
+        assertTrue(seatInventory.findLoaded(screening.getId()).isEmpty(), "Seat map must be reloaded from the database");
+        assertEquals(List.of("3-1"), ticketRepository.findSeatsByScreeningId(screening.getId())); // 3-2 не продано
+
+        // Перечитанная карта видит билет
+        SeatMap reloaded = seatInventory.getSeatMap(screening);
+        assertTrue(reloaded.isOccupied(reloaded.getLayout().indexOf("3-1")));
+    }
+
+    private interface Seats {
+        List<String> of(int buyer);
+    }
+
+    // Покупатели стартуют одновременно; true — покупка прошла
+    private List<Boolean> race(Screening screening, Seats seats) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < BUYERS; i++) {
+                int buyer = i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        reservationService.reserve(screening, null, "Buyer " + buyer, "buyer" + buyer + "@example.com",
+                                seats.of(buyer), null, null);
+                        return true;
+                    } catch (SeatsUnavailableException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            List<Boolean> won = new ArrayList<>();
+            Set<String> sold = new HashSet<>();
+            for (int i = 0; i < BUYERS; i++) {
+                boolean ok = results.get(i).get();
+                won.add(ok);
+                if (ok) {
+                    for (String seat : seats.of(i)) {
+                        assertTrue(sold.add(seat), "Seat " + seat + " confirmed to two buyers");
+                    }
+                }
+            }
+            return won;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Screening screening() {
+        Movie movie = new Movie();
+        movie.setTitle("Распродажа");
+        movieRepository.save(movie);
+        Hall hall = hallRepository.save(new Hall("Sale " + System.nanoTime(), HallLayout.uniform(4, 4)));
+        return screeningRepository.save(
+                new Screening(movie, LocalDateTime.now().plusDays(1), hall, new BigDecimal("300")));
+    }
+}